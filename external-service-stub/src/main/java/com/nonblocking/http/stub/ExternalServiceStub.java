@@ -0,0 +1,198 @@
+package com.nonblocking.http.stub;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.http.server.HttpServerRoutes;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/* *
+ * Reactor Netty stand-in for external-services.jar. Serves every route ExternalServiceClient uses, so the client can be
+ * exercised and benchmarked without the real service. Latency, error rate and stream emission rate come from StubSettings.
+ *
+ *      try (ExternalServiceStub stub = ExternalServiceStub.start(0, StubSettings.defaults())) {
+ *          String baseUrl = stub.baseUrl();
+ *      }
+ * */
+@Slf4j
+public class ExternalServiceStub implements AutoCloseable {
+
+    private static final List<String> NAMES = List.of("Sam", "Mike", "Jake", "Emma", "Olivia", "Liam", "Noah", "Ava", "Mia", "Lucas");
+    private static final List<String> COUNTRIES = List.of("India", "Canada", "Brazil", "Japan", "Norway", "Kenya", "Peru", "Italy");
+    private static final List<String> BOOKS = List.of("Dune", "Emma", "Ulysses", "Beloved", "Hamlet", "Walden", "Middlemarch");
+    private static final List<String> REVIEWS = List.of("1 star", "2 stars", "3 stars", "4 stars", "5 stars");
+    private static final List<String> ITEMS = List.of("Shirt", "Laptop", "Apple", "Lego", "Jeans", "Phone", "Bread", "Puzzle");
+    private static final List<String> CATEGORIES = List.of("Clothing", "Electronics", "Grocery", "Kids");
+
+    private final StubSettings settings;
+    private final DisposableServer server;
+
+    private ExternalServiceStub(int port, StubSettings settings) {
+        this.settings = settings;
+        this.server = HttpServer.create()
+                .port(port)
+                .route(this::routes)
+                .bindNow();
+        log.info("external service stub listening on {}", baseUrl());
+    }
+
+    public static ExternalServiceStub start(int port, StubSettings settings) {
+        return new ExternalServiceStub(port, settings);
+    }
+
+    public int port() {
+        return server.port();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port();
+    }
+
+    public Mono<Void> onDispose() {
+        return server.onDispose();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private void routes(HttpServerRoutes routes) {
+        routes.get(Route.DEMO01_PRODUCT.path(), unary(Route.DEMO01_PRODUCT, request -> productUpTo(request, 100)))
+                .get(Route.DEMO02_NAME_STREAM.path(), stream(Route.DEMO02_NAME_STREAM, () -> random(NAMES)))
+                .get(Route.DEMO02_STOCK_STREAM.path(), stream(Route.DEMO02_STOCK_STREAM, () -> String.valueOf(ThreadLocalRandom.current().nextInt(80, 121))))
+                .get(Route.DEMO03_PRODUCT.path(), unary(Route.DEMO03_PRODUCT, request -> productUpTo(request, 4)))
+                .get(Route.DEMO03_EMPTY_FALLBACK.path(), unary(Route.DEMO03_EMPTY_FALLBACK, request -> Reply.ok("fallback-product-" + productId(request))))
+                .get(Route.DEMO03_TIMEOUT_FALLBACK.path(), unary(Route.DEMO03_TIMEOUT_FALLBACK, request -> Reply.ok("fallback-product-" + productId(request))))
+                .get(Route.DEMO04_ORDERS_STREAM.path(), stream(Route.DEMO04_ORDERS_STREAM, ExternalServiceStub::order))
+                .get(Route.DEMO05_PRICE.path(), unary(Route.DEMO05_PRICE, request -> upTo(request, 10, id -> String.valueOf(id * 10 + 9))))
+                .get(Route.DEMO05_PRODUCT.path(), unary(Route.DEMO05_PRODUCT, request -> productUpTo(request, 10)))
+                .get(Route.DEMO05_REVIEW.path(), unary(Route.DEMO05_REVIEW, request -> upTo(request, 10, id -> REVIEWS.get(id % REVIEWS.size()))))
+                .get(Route.DEMO06_COUNTRY.path(), unary(Route.DEMO06_COUNTRY, request -> Reply.ok(random(COUNTRIES))))
+                .get(Route.DEMO06_PRODUCT.path(), unary(Route.DEMO06_PRODUCT, ExternalServiceStub::productForRetry))
+                .get(Route.DEMO07_BOOK.path(), unary(Route.DEMO07_BOOK, request -> Reply.ok(random(BOOKS))));
+    }
+
+    /* *
+     * A single response after the configured latency. The error rate is applied after the delay, the way a slow failing service behaves.
+     * */
+    private BiFunction<HttpServerRequest, HttpServerResponse, Publisher<Void>> unary(Route route, Function<HttpServerRequest, Reply> handler) {
+        return (request, response) -> {
+            RouteSettings routeSettings = settings.route(route);
+            return Mono.delay(routeSettings.latency())
+                    .map(tick -> failed(routeSettings) ? Reply.serverError() : handler.apply(request))
+                    .flatMap(reply -> send(response, reply));
+        };
+    }
+
+    /* *
+     * A chunked stream that starts after the configured latency and emits an element every emit interval.
+     * With dropAfter set, the connection is closed after that many elements without finishing the response, like a network failure.
+     * */
+    private BiFunction<HttpServerRequest, HttpServerResponse, Publisher<Void>> stream(Route route, Supplier<String> element) {
+        return (request, response) -> {
+            RouteSettings routeSettings = settings.route(route);
+            if (failed(routeSettings)) {
+                return Mono.delay(routeSettings.latency())
+                        .flatMap(tick -> send(response, Reply.serverError()));
+            }
+            Flux<String> elements = Mono.delay(routeSettings.latency())
+                    .thenMany(Flux.interval(routeSettings.emitInterval()))
+                    .take(routeSettings.emissions())
+                    .map(i -> element.get() + routeSettings.delimiter());
+            if (routeSettings.dropAfter() > 0) {
+                // closed once the elements are flushed, before the response is finished
+                return response.header(HttpHeaderNames.CONTENT_TYPE, "text/plain")
+                        .sendString(elements.take(routeSettings.dropAfter()))
+                        .then()
+                        .then(Mono.fromRunnable(() -> response.withConnection(connection -> connection.channel().close())));
+            }
+            return response.header(HttpHeaderNames.CONTENT_TYPE, "text/plain")
+                    .sendString(elements);
+        };
+    }
+
+    private static Mono<Void> send(HttpServerResponse response, Reply reply) {
+        response.status(reply.status())
+                .header(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+        return reply.body() == null ? response.send().then() : response.sendString(Mono.just(reply.body())).then();
+    }
+
+    private static boolean failed(RouteSettings routeSettings) {
+        return routeSettings.errorRate() > 0 && ThreadLocalRandom.current().nextDouble() < routeSettings.errorRate();
+    }
+
+    private static Reply productUpTo(HttpServerRequest request, int maxProductId) {
+        return upTo(request, maxProductId, id -> "product-" + id);
+    }
+
+    // unknown product ids get an empty 200 response, like the real service
+    private static Reply upTo(HttpServerRequest request, int maxProductId, Function<Integer, String> body) {
+        int productId = productId(request);
+        return productId >= 1 && productId <= maxProductId ? Reply.ok(body.apply(productId)) : Reply.empty();
+    }
+
+    // product id 1 is always a 400 Bad Request, product id 2 randomly fails with a 500 Internal Server Error
+    private static Reply productForRetry(HttpServerRequest request) {
+        int productId = productId(request);
+        if (productId == 1) {
+            return Reply.badRequest();
+        }
+        if (productId == 2 && ThreadLocalRandom.current().nextBoolean()) {
+            return Reply.serverError();
+        }
+        return Reply.ok("product-" + productId);
+    }
+
+    // message format: "item:category:price:quantity", where price is the total price of the order
+    private static String order() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int quantity = random.nextInt(1, 11);
+        int unitPrice = random.nextInt(1, 101);
+        return random(ITEMS) + ":" + random(CATEGORIES) + ":" + (unitPrice * quantity) + ".0:" + quantity;
+    }
+
+    private static int productId(HttpServerRequest request) {
+        try {
+            return Integer.parseInt(request.param("productId"));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static String random(List<String> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+
+    private record Reply(HttpResponseStatus status, String body) {
+
+        static Reply ok(String body) {
+            return new Reply(HttpResponseStatus.OK, body);
+        }
+
+        static Reply empty() {
+            return new Reply(HttpResponseStatus.OK, null);
+        }
+
+        static Reply badRequest() {
+            return new Reply(HttpResponseStatus.BAD_REQUEST, "Bad Request");
+        }
+
+        static Reply serverError() {
+            return new Reply(HttpResponseStatus.INTERNAL_SERVER_ERROR, "Internal Server Error");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.nonblocking.http.stub;
+
+/* *
+ * Runs the stub in place of external-services.jar:
+ *
+ *      java -jar external-service-stub-1.0.0-exec.jar --server.port=7070 --stub.demo05-price.latency-ms=200
+ * */
+public class ExternalServiceStubApplication {
+
+    private static final int DEFAULT_PORT = 7070;
+
+    public static void main(String[] args) {
+        StubSettings settings = StubSettings.defaults().withArguments(args);
+        ExternalServiceStub stub = ExternalServiceStub.start(port(args), settings);
+        stub.onDispose().block();
+    }
+
+    private static int port(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--server.port=")) {
+                return Integer.parseInt(arg.substring("--server.port=".length()));
+            }
+        }
+        return DEFAULT_PORT;
+    }
+}
@@ -0,0 +1,47 @@
+package com.nonblocking.http.stub;
+
+import java.time.Duration;
+
+/* *
+ * Every route served by external-services.jar that ExternalServiceClient calls, together with the
+ * behaviour the real service exhibits by default (see the comments on ExternalServiceClient).
+ * The key is used to override the settings from the command line, e.g. --stub.demo05-price.latency-ms=200
+ * */
+public enum Route {
+
+    DEMO01_PRODUCT("demo01-product", "/demo01/product/{productId}", RouteSettings.response(Duration.ofSeconds(1))),
+    DEMO02_NAME_STREAM("demo02-name-stream", "/demo02/name/stream", RouteSettings.stream(Duration.ofMillis(500), 20, "\n")),
+    DEMO02_STOCK_STREAM("demo02-stock-stream", "/demo02/stock/stream", RouteSettings.stream(Duration.ofMillis(500), 40, "\n")),
+    DEMO03_PRODUCT("demo03-product", "/demo03/product/{productId}", RouteSettings.response(Duration.ofSeconds(1))),
+    DEMO03_EMPTY_FALLBACK("demo03-empty-fallback", "/demo03/empty-fallback/product/{productId}", RouteSettings.response(Duration.ofMillis(100))),
+    DEMO03_TIMEOUT_FALLBACK("demo03-timeout-fallback", "/demo03/timeout-fallback/product/{productId}", RouteSettings.response(Duration.ofMillis(100))),
+    DEMO04_ORDERS_STREAM("demo04-orders-stream", "/demo04/orders/stream", RouteSettings.stream(Duration.ofMillis(100), Long.MAX_VALUE, "\n")),
+    DEMO05_PRICE("demo05-price", "/demo05/price/{productId}", RouteSettings.response(Duration.ofSeconds(1))),
+    DEMO05_PRODUCT("demo05-product", "/demo05/product/{productId}", RouteSettings.response(Duration.ofSeconds(1))),
+    DEMO05_REVIEW("demo05-review", "/demo05/review/{productId}", RouteSettings.response(Duration.ofSeconds(1))),
+    DEMO06_COUNTRY("demo06-country", "/demo06/country", RouteSettings.response(Duration.ofMillis(100))),
+    DEMO06_PRODUCT("demo06-product", "/demo06/product/{productId}", RouteSettings.response(Duration.ofMillis(100))),
+    DEMO07_BOOK("demo07-book", "/demo07/book", RouteSettings.response(Duration.ofMillis(100)));
+
+    private final String key;
+    private final String path;
+    private final RouteSettings defaults;
+
+    Route(String key, String path, RouteSettings defaults) {
+        this.key = key;
+        this.path = path;
+        this.defaults = defaults;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public RouteSettings defaults() {
+        return defaults;
+    }
+}
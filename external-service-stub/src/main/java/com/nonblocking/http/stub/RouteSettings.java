@@ -0,0 +1,38 @@
+package com.nonblocking.http.stub;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/* *
+ * Behaviour of a single stub route.
+ *  - latency:      delay before a response (or the first stream element) is sent.
+ *  - errorRate:    probability [0, 1] of answering with 500 Internal Server Error instead.
+ *  - emitInterval: delay between two stream elements (streaming routes only).
+ *  - emissions:    number of elements a stream emits before completing (streaming routes only).
+ *  - delimiter:    appended to every stream element. Empty sends one element per chunk without a delimiter.
+ *  - dropAfter:    elements after which the connection of a stream is dropped abruptly, 0 for never (streaming routes only).
+ * */
+@Builder(toBuilder = true)
+public record RouteSettings(Duration latency, double errorRate, Duration emitInterval, long emissions, String delimiter, long dropAfter) {
+
+    public RouteSettings {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("errorRate must be between 0 and 1: " + errorRate);
+        }
+        if (emissions < 0) {
+            throw new IllegalArgumentException("emissions must not be negative: " + emissions);
+        }
+        if (dropAfter < 0) {
+            throw new IllegalArgumentException("dropAfter must not be negative: " + dropAfter);
+        }
+    }
+
+    static RouteSettings response(Duration latency) {
+        return new RouteSettings(latency, 0, Duration.ZERO, 0, "", 0);
+    }
+
+    static RouteSettings stream(Duration emitInterval, long emissions, String delimiter) {
+        return new RouteSettings(Duration.ZERO, 0, emitInterval, emissions, delimiter, 0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.nonblocking.http.stub;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/* *
+ * Settings for all routes of the stub. Starts from the behaviour of the real service and lets single routes be overridden.
+ * */
+public record StubSettings(Map<Route, RouteSettings> routes) {
+
+    private static final String PREFIX = "--stub.";
+
+    public StubSettings {
+        routes = Collections.unmodifiableMap(new EnumMap<>(routes));
+    }
+
+    public static StubSettings defaults() {
+        Map<Route, RouteSettings> routes = new EnumMap<>(Route.class);
+        for (Route route : Route.values()) {
+            routes.put(route, route.defaults());
+        }
+        return new StubSettings(routes);
+    }
+
+    public RouteSettings route(Route route) {
+        return routes.get(route);
+    }
+
+    public StubSettings with(Route route, UnaryOperator<RouteSettings.RouteSettingsBuilder> customizer) {
+        Map<Route, RouteSettings> updated = new EnumMap<>(routes);
+        updated.put(route, customizer.apply(route(route).toBuilder()).build());
+        return new StubSettings(updated);
+    }
+
+    /* *
+     * Applies command line overrides of the form --stub.<route-key>.<property>=<value>, where property is one of
+     * latency-ms, error-rate, emit-interval-ms, emissions, delimiter or drop-after. Unrelated arguments are ignored.
+     * */
+    public StubSettings withArguments(String... args) {
+        StubSettings settings = this;
+        for (String arg : args) {
+            if (!arg.startsWith(PREFIX) || !arg.contains("=")) {
+                continue;
+            }
+            String name = arg.substring(PREFIX.length(), arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            int dot = name.lastIndexOf('.');
+            if (dot < 0) {
+                throw new IllegalArgumentException("Expected --stub.<route>.<property>=<value> but got: " + arg);
+            }
+            Route route = routeOf(name.substring(0, dot));
+            String property = name.substring(dot + 1);
+            settings = settings.with(route, builder -> switch (property) {
+                case "latency-ms" -> builder.latency(Duration.ofMillis(Long.parseLong(value)));
+                case "error-rate" -> builder.errorRate(Double.parseDouble(value));
+                case "emit-interval-ms" -> builder.emitInterval(Duration.ofMillis(Long.parseLong(value)));
+                case "emissions" -> builder.emissions(Long.parseLong(value));
+                case "delimiter" -> builder.delimiter(value.replace("\\n", "\n"));
+                case "drop-after" -> builder.dropAfter(Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Unknown stub property: " + property);
+            });
+        }
+        return settings;
+    }
+
+    private static Route routeOf(String key) {
+        for (Route route : Route.values()) {
+            if (route.key().equals(key)) {
+                return route;
+            }
+        }
+        throw new IllegalArgumentException("Unknown stub route: " + key);
+    }
+}
@@ -0,0 +1,106 @@
+package com.nonblocking.http.stub;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.PrematureCloseException;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ExternalServiceStubTest {
+
+    private ExternalServiceStub stub;
+    private HttpClient httpClient;
+
+    @BeforeEach
+    public void setUp() {
+        StubSettings settings = StubSettings.defaults()
+                .withArguments("--stub.demo01-product.latency-ms=0", "--stub.demo02-stock-stream.emit-interval-ms=10", "--stub.demo02-stock-stream.emissions=5",
+                        "--stub.demo02-name-stream.emit-interval-ms=10", "--stub.demo02-name-stream.drop-after=3")
+                .with(Route.DEMO07_BOOK, route -> route.errorRate(1));
+        stub = ExternalServiceStub.start(0, settings);
+        httpClient = HttpClient.create().baseUrl(stub.baseUrl());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    public void product_route_returns_product_name_test() {
+        StepVerifier.create(get("/demo01/product/7"))
+                .expectNext("200 product-7")
+                .verifyComplete();
+    }
+
+    @Test
+    public void unknown_product_returns_empty_body_test() {
+        StepVerifier.create(get("/demo01/product/101"))
+                .expectNext("200 ")
+                .verifyComplete();
+    }
+
+    @Test
+    public void retry_product_returns_bad_request_test() {
+        StepVerifier.create(get("/demo06/product/1"))
+                .expectNext("400 Bad Request")
+                .verifyComplete();
+    }
+
+    @Test
+    public void error_rate_returns_internal_server_error_test() {
+        StepVerifier.create(get("/demo07/book"))
+                .expectNext("500 Internal Server Error")
+                .verifyComplete();
+    }
+
+    @Test
+    public void stock_stream_emits_configured_number_of_prices_test() {
+        StepVerifier.create(httpClient.get()
+                        .uri("/demo02/stock/stream")
+                        .responseContent()
+                        .asString()
+                        .flatMapIterable(chunk -> List.of(chunk.split("\n")))
+                        .map(Integer::valueOf))
+                .thenConsumeWhile(price -> price >= 80 && price <= 120)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void name_stream_drops_the_connection_test() {
+        StepVerifier.create(httpClient.get()
+                        .uri("/demo02/name/stream")
+                        .responseContent()
+                        .asString()
+                        .flatMapIterable(chunk -> List.of(chunk.split("\n"))))
+                .expectNextCount(3)
+                .expectError(PrematureCloseException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void invalid_settings_are_rejected_test() {
+        StubSettings settings = StubSettings.defaults();
+        assertThrows(IllegalArgumentException.class, () -> settings.withArguments("--stub.demo99.latency-ms=0"));
+        assertThrows(IllegalArgumentException.class, () -> settings.with(Route.DEMO07_BOOK, route -> route.errorRate(2)));
+        assertEquals(Duration.ofSeconds(1), settings.route(Route.DEMO05_PRICE).latency());
+    }
+
+    private Mono<String> get(String uri) {
+        return httpClient.get()
+                .uri(uri)
+                .responseSingle((response, content) -> content.asString()
+                        .defaultIfEmpty("")
+                        .map(body -> response.status().code() + " " + body));
+    }
+}
@@ -0,0 +1,244 @@
+package com.nonblocking.http.client.assignment.context;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* *
+ * Waiting room in front of the Quotas: a call that gets no permit is parked in the bounded queue of its category instead of
+ * failing, and resumed as soon as there is one for it. Nothing blocks: the queues are drained by arriving calls, and otherwise
+ * by a timer armed for the moment the oldest waiter of the category could get a permit.
+ *
+ * Draining hands out one permit per category in turn. Categories share the global pool, so without the turns a long queue
+ * of one category would borrow every idle permit before the other's waiters got a look in. Within a category the oldest waiter
+ * whose user has a permit left goes first: a user out of permits does not hold up the users queued behind them.
+ * Categories are taken from the live quota table, so one added by a reload is queued for like the others.
+ * A full queue, or a wait longer than maxWait, fails the call.
+ *
+ * Published meters: external.service.rate-limit.queued{category}, external.service.rate-limit.wait{category},
+ * external.service.rate-limit.rejected{category, reason=queue-full|max-wait}
+ * */
+class PermitQueues {
+
+    private static final long NOT_ARMED = Long.MAX_VALUE;
+
+    private final Quotas quotas;
+    private final Map<String, Category> byName = new ConcurrentHashMap<>();
+    // the categories in drain order, replaced whenever one is added
+    private volatile Category[] categories = new Category[0];
+    private final int maxQueue;
+    // makes sure only one thread drains at a time; the others leave their work to it
+    private final AtomicInteger draining = new AtomicInteger();
+    // the category served first in the next round
+    private int nextCategory;
+
+    PermitQueues(Quotas quotas, int maxQueue) {
+        this.quotas = quotas;
+        this.maxQueue = maxQueue;
+    }
+
+    /* *
+     * Completes empty once the user got a permit, or fails with "exceeded the given limit" when the queue of the category is full
+     * or the permit did not come within maxWait. An unknown category never gets one.
+     * */
+    <T> Mono<T> acquire(String user, String category, Duration maxWait) {
+        Category queue = category == null ? null : category(category);
+        if (queue == null) {
+            return Mono.error(new RuntimeException("exceeded the given limit"));
+        }
+        return Mono.<T>create(sink -> queue.enqueue(sink, user, maxWait));
+    }
+
+    int queued(String category) {
+        Category queue = byName.get(category);
+        return queue == null ? 0 : queue.depth.get();
+    }
+
+    // the queue of a category the quotas have now, made the first time it is asked for
+    private Category category(String name) {
+        Category queue = byName.get(name);
+        if (queue != null || !quotas.settings().categories().containsKey(name)) {
+            return queue;
+        }
+        synchronized (byName) {
+            queue = byName.computeIfAbsent(name, Category::new);
+            categories = byName.values().stream()
+                    .sorted(Comparator.comparing(category -> category.name))
+                    .toArray(Category[]::new);
+        }
+        return queue;
+    }
+
+    private void drain() {
+        if (draining.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Category[] categories = this.categories;
+            boolean granted;
+            do {
+                granted = false;
+                for (int i = 0; i < categories.length; i++) {
+                    Category category = categories[(nextCategory + i) % categories.length];
+                    if (category.grantOne()) {
+                        granted = true;
+                    }
+                }
+                nextCategory = (nextCategory + 1) % Math.max(1, categories.length);
+            } while (granted);
+            for (Category category : categories) {
+                category.armTimer();
+            }
+            missed = draining.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private class Category {
+
+        private final String name;
+        private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        // System.nanoTime() the timer is due at, NOT_ARMED when there is none
+        private final AtomicLong timerDue = new AtomicLong(NOT_ARMED);
+        private volatile Disposable timer;
+        private final Timer waitTime;
+        private final Counter queueFull;
+        private final Counter maxWaitExceeded;
+
+        private Category(String name) {
+            this.name = name;
+            Tags tags = Tags.of("category", name);
+            Metrics.gauge("external.service.rate-limit.queued", tags, depth);
+            this.waitTime = Metrics.timer("external.service.rate-limit.wait", tags);
+            this.queueFull = Metrics.counter("external.service.rate-limit.rejected", tags.and("reason", "queue-full"));
+            this.maxWaitExceeded = Metrics.counter("external.service.rate-limit.rejected", tags.and("reason", "max-wait"));
+        }
+
+        private <T> void enqueue(MonoSink<T> sink, String user, Duration maxWait) {
+            // nobody waiting yet: take the permit right away, without queueing
+            if (waiters.isEmpty() && quotas.tryAcquire(user, name)) {
+                waitTime.record(0, TimeUnit.NANOSECONDS);
+                sink.success();
+                return;
+            }
+            if (depth.incrementAndGet() > maxQueue) {
+                depth.decrementAndGet();
+                queueFull.increment();
+                sink.error(new RuntimeException("exceeded the given limit"));
+                return;
+            }
+            Waiter waiter = new Waiter(sink, user);
+            waiters.offer(waiter);
+            Disposable timeout = Schedulers.parallel().schedule(() -> {
+                if (leave(waiter)) {
+                    maxWaitExceeded.increment();
+                    sink.error(new RuntimeException("exceeded the given limit, waited " + maxWait));
+                }
+            }, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            sink.onDispose(timeout);
+            sink.onCancel(() -> leave(waiter));
+            drain();
+        }
+
+        // grants the oldest waiter still waiting whose user has a permit; stops at the first refusal the whole category shares
+        private boolean grantOne() {
+            for (Waiter waiter : waiters) {
+                if (waiter.done.get()) {
+                    waiters.remove(waiter); // timed out or cancelled, but not removed yet
+                    continue;
+                }
+                Quotas.Grant grant = quotas.grant(waiter.user, name);
+                if (grant == Quotas.Grant.REFUSED) {
+                    return false;
+                }
+                if (grant == Quotas.Grant.USER_REFUSED) {
+                    continue;
+                }
+                if (!waiter.done.compareAndSet(false, true)) {
+                    quotas.refund(waiter.user, name, grant); // left in the meantime, the permit goes back
+                    continue;
+                }
+                waiters.remove(waiter);
+                depth.decrementAndGet();
+                waitTime.record(System.nanoTime() - waiter.enqueuedNanos, TimeUnit.NANOSECONDS);
+                waiter.sink.success();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean leave(Waiter waiter) {
+            if (!waiter.done.compareAndSet(false, true)) {
+                return false;
+            }
+            depth.decrementAndGet();
+            waiters.remove(waiter);
+            return true;
+        }
+
+        /* *
+         * One timer per category at most, due when the first of the waiters could get a permit. A waiter whose user refills sooner
+         * than the one the timer was armed for moves it forward. A category dropped by a reload has no such moment; its waiters are
+         * left to maxWait.
+         * */
+        private void armTimer() {
+            if (waiters.isEmpty()) {
+                return;
+            }
+            long nanos = Long.MAX_VALUE;
+            for (Waiter waiter : waiters) {
+                nanos = Math.min(nanos, quotas.nanosUntilAvailable(waiter.user, name));
+            }
+            if (nanos == Long.MAX_VALUE) {
+                return;
+            }
+            long due = System.nanoTime() + Math.max(1, nanos);
+            long armed = timerDue.get();
+            if (armed != NOT_ARMED && armed - due <= 0) {
+                return;
+            }
+            // fails only when the armed timer just fired, and its drain arms the next one
+            if (!timerDue.compareAndSet(armed, due)) {
+                return;
+            }
+            Disposable previous = timer;
+            timer = Schedulers.parallel().schedule(() -> {
+                timerDue.compareAndSet(due, NOT_ARMED);
+                drain();
+            }, due - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (previous != null) {
+                previous.dispose();
+            }
+        }
+    }
+
+    private static class Waiter {
+
+        private final MonoSink<?> sink;
+        private final String user;
+        private final long enqueuedNanos = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Waiter(MonoSink<?> sink, String user) {
+            this.sink = sink;
+            this.user = user;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.nonblocking.http.client.assignment.context;
+
+import lombok.Builder;
+
+import java.time.Duration;
+import java.util.Map;
+
+/* *
+ * Nested quotas of the rate limited services, all counted in permits per period.
+ *  - period:              the period every quota below refills in.
+ *  - globalPermits:       permits for all users together.
+ *  - categories:          per category its weight and ceiling. The global permits are reserved for the categories by weight
+ *                         (standard 2 and prime 3 of 5 permits reserves 2 for standard and 3 for prime). A category may borrow
+ *                         permits another category leaves idle, up to its ceiling; reserved permits are always granted.
+ *  - defaultUserPermits:  permits of a single user, for users not in userPermits.
+ *  - userPermits:         permits of single users, overriding the default.
+ * */
+@Builder(toBuilder = true)
+public record QuotaSettings(Duration period,
+                            long globalPermits,
+                            Map<String, CategoryQuota> categories,
+                            long defaultUserPermits,
+                            Map<String, Long> userPermits) {
+
+    public record CategoryQuota(int weight, long ceiling) {
+    }
+
+    public QuotaSettings {
+        categories = Map.copyOf(categories);
+        userPermits = Map.copyOf(userPermits);
+        if (globalPermits < 1 || defaultUserPermits < 1 || categories.isEmpty()) {
+            throw new IllegalArgumentException("global and user permits must be positive, and there must be categories: " + globalPermits + "/" + defaultUserPermits);
+        }
+        int totalWeight = categories.values().stream().mapToInt(CategoryQuota::weight).sum();
+        categories.forEach((category, quota) -> {
+            if (quota.weight() < 1 || quota.ceiling() < reserved(globalPermits, quota.weight(), totalWeight)) {
+                throw new IllegalArgumentException("weight must be positive and ceiling at least the reserved permits: " + category + " " + quota);
+            }
+        });
+    }
+
+    public long reservedPermits(String category) {
+        int totalWeight = categories.values().stream().mapToInt(CategoryQuota::weight).sum();
+        return reserved(globalPermits, categories.get(category).weight(), totalWeight);
+    }
+
+    private static long reserved(long globalPermits, int weight, int totalWeight) {
+        return Math.max(1, globalPermits * weight / totalWeight);
+    }
+
+    // as before: standard users get 2 calls and prime users 3 calls every 5 seconds, prime may use up to 2 more while standard is idle
+    public static QuotaSettings defaults() {
+        return QuotaSettings.builder()
+                .period(Duration.ofSeconds(5))
+                .globalPermits(5)
+                .categories(Map.of(
+                        "standard", new CategoryQuota(2, 2),
+                        "prime", new CategoryQuota(3, 5)))
+                .defaultUserPermits(5)
+                .userPermits(Map.of())
+                .build();
+    }
+}
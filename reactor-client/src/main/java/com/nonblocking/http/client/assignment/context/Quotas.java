@@ -0,0 +1,182 @@
+package com.nonblocking.http.client.assignment.context;
+
+import com.nonblocking.http.client.reactorclient.resilience.TokenBucket;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/* *
+ * User, category and global quotas (see QuotaSettings), checked together in one pass:
+ *
+ *      user  ->  category ceiling  ->  category reserve, or else borrowed from the global pool
+ *
+ * Every level is a lock-free TokenBucket. A call refused further down gets its tokens back from the levels above, so a refusal
+ * costs nobody a permit. Reserved permits are always granted and also drawn from the global pool, even into debt; that debt is
+ * what stops borrowing once the lending category is busy again.
+ *
+ * The check does not allocate: the quota table is immutable and only looked up, apart from the bucket created the first time
+ * a user shows up. That is also when buckets that are full again get dropped, once the users doubled since the last sweep:
+ * a full bucket is no different from a new one, so the table holds the recently active users and not everybody ever seen.
+ * reload() swaps in a new table atomically, keeping the state of every bucket whose quota did not change.
+ * */
+public class Quotas {
+
+    // users a table holds before the first sweep
+    private static final int SWEEP_AT = 1024;
+
+    private volatile Table table;
+
+    public Quotas(QuotaSettings settings) {
+        this.table = new Table(settings, null);
+    }
+
+    public QuotaSettings settings() {
+        return table.settings;
+    }
+
+    public synchronized void reload(QuotaSettings settings) {
+        this.table = new Table(settings, table);
+    }
+
+    // users with a bucket right now
+    int users() {
+        return table.users.size();
+    }
+
+    /* *
+     * @param user may be null, only the category and global quotas apply then
+     * @return whether a permit was taken on every level. An unknown category never gets one.
+     * */
+    public boolean tryAcquire(String user, String category) {
+        return grant(user, category).granted();
+    }
+
+    // as tryAcquire, but says where the permit came from, or which level refused it
+    Grant grant(String user, String category) {
+        Table current = table;
+        Category quota = category == null ? null : current.categories.get(category);
+        if (quota == null) {
+            return Grant.REFUSED;
+        }
+        TokenBucket userBucket = user == null ? null : current.user(user);
+        if (userBucket != null && !userBucket.tryAcquire()) {
+            return Grant.USER_REFUSED;
+        }
+        if (!quota.ceiling.tryAcquire()) {
+            refund(userBucket);
+            return Grant.REFUSED;
+        }
+        if (quota.reserve.tryAcquire()) {
+            current.global.forceAcquire();
+            return Grant.RESERVED;
+        }
+        if (current.global.tryAcquire()) {
+            return Grant.BORROWED; // borrowed from a category that left its permits idle
+        }
+        quota.ceiling.refund();
+        refund(userBucket);
+        return Grant.REFUSED;
+    }
+
+    // gives a granted permit that went unused back to every level it was taken from
+    void refund(String user, String category, Grant grant) {
+        Table current = table;
+        Category quota = current.categories.get(category);
+        if (!grant.granted() || quota == null) {
+            return;
+        }
+        refund(user == null ? null : current.user(user));
+        quota.ceiling.refund();
+        if (grant == Grant.RESERVED) {
+            quota.reserve.refund();
+        }
+        current.global.refund();
+    }
+
+    // when the user could get a permit next, 0 if right away
+    public long nanosUntilAvailable(String user, String category) {
+        Table current = table;
+        Category quota = current.categories.get(category);
+        if (quota == null) {
+            return Long.MAX_VALUE;
+        }
+        long wait = Math.max(quota.ceiling.nanosUntilNextToken(), Math.min(quota.reserve.nanosUntilNextToken(), current.global.nanosUntilNextToken()));
+        return user == null ? wait : Math.max(wait, current.user(user).nanosUntilNextToken());
+    }
+
+    private static void refund(TokenBucket bucket) {
+        if (bucket != null) {
+            bucket.refund();
+        }
+    }
+
+    enum Grant {
+        RESERVED,
+        BORROWED,
+        // the user is out of permits, another user may still get one
+        USER_REFUSED,
+        REFUSED;
+
+        boolean granted() {
+            return this == RESERVED || this == BORROWED;
+        }
+    }
+
+    private record Category(TokenBucket reserve, TokenBucket ceiling) {
+    }
+
+    private static class Table {
+
+        private final QuotaSettings settings;
+        private final TokenBucket global;
+        private final Map<String, Category> categories = new HashMap<>();
+        private final Map<String, TokenBucket> users = new ConcurrentHashMap<>();
+        private final Function<String, TokenBucket> newUser;
+        private final AtomicInteger sweepAt = new AtomicInteger(SWEEP_AT);
+
+        private Table(QuotaSettings settings, Table previous) {
+            this.settings = settings;
+            this.global = bucket(settings.globalPermits(), previous == null ? null : previous.global);
+            settings.categories().forEach((name, quota) -> {
+                Category before = previous == null ? null : previous.categories.get(name);
+                categories.put(name, new Category(
+                        bucket(settings.reservedPermits(name), before == null ? null : before.reserve()),
+                        bucket(quota.ceiling(), before == null ? null : before.ceiling())));
+            });
+            this.newUser = user -> new TokenBucket(settings.userPermits().getOrDefault(user, settings.defaultUserPermits()), settings.period());
+            if (previous != null) {
+                previous.users.forEach((user, before) -> users.put(user, bucket(settings.userPermits().getOrDefault(user, settings.defaultUserPermits()), before)));
+            }
+        }
+
+        private TokenBucket user(String user) {
+            TokenBucket bucket = users.get(user);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (users.size() >= sweepAt.get()) {
+                sweep();
+            }
+            return users.computeIfAbsent(user, newUser);
+        }
+
+        // drops the buckets of users idle long enough to be full again, the next sweep waits until the rest doubled.
+        // A user racing the sweep may take a token from a dropped bucket and then start a new one, at most one token extra
+        private void sweep() {
+            int at = sweepAt.get();
+            users.values().removeIf(bucket -> bucket.availableTokens() == bucket.capacity());
+            sweepAt.compareAndSet(at, Math.max(SWEEP_AT, 2 * users.size()));
+        }
+
+        // the bucket of the previous table if its quota is unchanged, so a reload neither refills nor drains it
+        private TokenBucket bucket(long permits, TokenBucket before) {
+            if (before != null && before.capacity() == permits && before.refillPeriod().equals(settings.period())) {
+                return before;
+            }
+            return new TokenBucket(permits, settings.period());
+        }
+    }
+}
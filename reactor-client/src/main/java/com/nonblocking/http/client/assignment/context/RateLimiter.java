@@ -1,13 +1,9 @@
 package com.nonblocking.http.client.assignment.context;
 
 import lombok.extern.slf4j.Slf4j;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * To be used in reactive context demo
@@ -15,39 +11,40 @@ import java.util.Map;
 @Slf4j
 public class RateLimiter {
 
-    private static final Map<String, Integer> categoryAttempts = Collections.synchronizedMap(new HashMap<>());
+    // user, category and global quotas, checked in one pass (see Quotas). The table can be swapped at runtime with reload()
+    private static final Quotas quotas = new Quotas(QuotaSettings.defaults());
 
-    static {
-        refresh();
-    }
+    // calls waiting for a permit, per category (see queueCalls)
+    private static final int MAX_QUEUE = 100;
+    private static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(10);
+    private static final PermitQueues permitQueues = new PermitQueues(quotas, MAX_QUEUE);
 
     public static <T> Mono<T> limitCalls() {
         return Mono.deferContextual(ctx -> {
-            boolean allowCall = ctx.<String>getOrEmpty("category")
-                    .map(RateLimiter::canAllow)
-                    .orElse(false);
+            // getOrDefault instead of getOrEmpty, so the check does not allocate
+            boolean allowCall = quotas.tryAcquire(ctx.getOrDefault("user", null), ctx.getOrDefault("category", null));
 
-            log.info("ctx: {}", ctx);
+            log.debug("ctx: {}", ctx);
             return allowCall ? Mono.empty() : Mono.error(new RuntimeException("exceeded the given limit"));
         });
     }
 
-    // synchronized used to make the method thread safe
-    private static synchronized boolean canAllow(String category) {
-        Integer attempt = categoryAttempts.getOrDefault(category, 0);
-        if (attempt > 0) {
-            categoryAttempts.put(category, attempt - 1);
-            return true;
-        }
-        return false;
+    /* *
+     * Same contract as limitCalls(), but a call over the limit is delayed until its category has a token again, instead of failing.
+     * It only fails when too many calls of the category are waiting already, or when it waited longer than maxWait.
+     * */
+    public static <T> Mono<T> queueCalls() {
+        return queueCalls(DEFAULT_MAX_WAIT);
+    }
+
+    public static <T> Mono<T> queueCalls(Duration maxWait) {
+        return Mono.deferContextual(ctx -> permitQueues.acquire(ctx.getOrDefault("user", null), ctx.getOrDefault("category", null), maxWait));
     }
 
-    private static void refresh() {
-        Flux.interval(Duration.ZERO, Duration.ofSeconds(5))
-                .startWith(0L)
-                .subscribe(i -> {
-                    categoryAttempts.put("standard", 2);
-                    categoryAttempts.put("prime", 3);
-                });
+    /* *
+     * Swaps the quota table, e.g. when the plans change. Buckets whose quota did not change keep their state.
+     * */
+    public static void reload(QuotaSettings settings) {
+        quotas.reload(settings);
     }
 }
@@ -1,5 +1,5 @@
 package com.nonblocking.http.client.assignment.hotandcoldpublisher;
 
-record Order(String item, String category, double price, int quantity) {
+public record Order(String item, String category, double price, int quantity) {
 
-}
\ No newline at end of file
+}
@@ -1,19 +1,143 @@
 package com.nonblocking.http.client.reactorclient;
 
+import com.nonblocking.http.client.reactorclient.balancer.LoadBalancer;
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.config.WarmupSettings;
+import com.nonblocking.http.client.reactorclient.metrics.ExchangeMetrics;
+import com.nonblocking.http.client.reactorclient.resilience.Bulkhead;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import reactor.netty.resources.LoopResources;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Slf4j
 public abstract class AbstractHttpClient {
 
-    private static final String BASE_URL = "http://localhost:7070";
+    protected final ClientSettings settings;
     protected final HttpClient httpClient;
+    protected final ConnectionProvider connectionProvider;
+    protected final LoopResources loopResources;
+    // picks the replica of every exchange (see LoadBalancerSettings). httpClient itself always targets the first one
+    protected final LoadBalancer loadBalancer;
+    // the bulkhead of every grouped endpoint, each group with its own pool and balancer (see BulkheadSettings)
+    private final Map<String, Bulkhead> bulkheads = new HashMap<>();
+    private final Bulkhead sharedBulkhead;
+    private final List<ConnectionProvider> groupPools = new ArrayList<>();
 
     public AbstractHttpClient() {
-        LoopResources loopResources = LoopResources.create("ssamantr-thread", 1, true);
-        this.httpClient = HttpClient.create()
-                .runOn(loopResources)
-                .baseUrl(BASE_URL);
+        this(ClientSettings.defaults());
+    }
+
+    public AbstractHttpClient(ClientSettings settings) {
+        this.settings = settings;
+        this.loopResources = settings.loop().toLoopResources();
+        this.connectionProvider = settings.pool().toConnectionProvider();
+        log.info("{} event loop threads, native transport: {}", settings.loop().workerCount(), settings.loop().preferNative() && LoopResources.hasNativeSupport());
+        this.httpClient = newHttpClient(connectionProvider);
+        this.loadBalancer = new LoadBalancer(settings.pool().name(), settings.baseUrls(), httpClient, settings.loadBalancer());
+        this.sharedBulkhead = Bulkhead.shared(loadBalancer);
+        settings.bulkhead().groups().forEach((group, groupSettings) -> {
+            ConnectionProvider pool = groupSettings.pool().toConnectionProvider();
+            groupPools.add(pool);
+            Bulkhead bulkhead = new Bulkhead(group, groupSettings,
+                    new LoadBalancer(groupSettings.pool().name(), settings.baseUrls(), newHttpClient(pool), settings.loadBalancer()));
+            groupSettings.endpoints().forEach(endpoint -> bulkheads.put(endpoint, bulkhead));
+        });
+        if (settings.warmup().enabled()) {
+            Mono<Void> warmup = warmup().timeout(settings.warmup().timeout())
+                    .onErrorResume(ex -> {
+                        log.warn("warmup failed, the first requests will pay for it: {}", ex.toString());
+                        return Mono.empty();
+                    });
+            // block() throws on an event loop or parallel thread, a client created there warms up in the background instead
+            if (Schedulers.isInNonBlockingThread()) {
+                log.info("client created on non-blocking thread {}, warming up in the background", Thread.currentThread().getName());
+                warmup.subscribe();
+            } else {
+                warmup.block();
+            }
+        }
+    }
+
+    public LoadBalancer loadBalancer() {
+        return loadBalancer;
+    }
+
+    // the bulkhead of the endpoint's group, or the shared one
+    public Bulkhead bulkhead(String endpoint) {
+        return bulkheads.getOrDefault(endpoint, sharedBulkhead);
+    }
+
+    // event loops, base URL and instrumentation are the same for every pool
+    private HttpClient newHttpClient(ConnectionProvider pool) {
+        return HttpClient.create(pool)
+                .runOn(loopResources, settings.loop().preferNative())
+                .baseUrl(settings.baseUrls().get(0))
+                .doOnResponse(ExchangeMetrics::firstByte);
+    }
+
+    /* *
+     * Pays the startup costs before the first real request does (see WarmupSettings):
+     *  - the event loops are started and the DNS resolver and native transport classes loaded (HttpClient.warmup()),
+     *  - the configured number of pooled connections is opened to every replica, with concurrent HEAD requests,
+     *  - the warmup routes are requested once on every replica.
+     * Only the shared pool is warmed up, the pools of the bulkheads open their connections on demand.
+     * The exchanges bypass caches, circuit breakers and metrics. Subscribe to it before taking traffic.
+     * */
+    public Mono<Void> warmup() {
+        WarmupSettings warmup = settings.warmup();
+        int connections = Math.min(warmup.connections(), settings.pool().maxConnections());
+        Mono<Void> opened = Flux.fromIterable(loadBalancer.replicas())
+                .flatMap(replica -> open(httpClient.baseUrl(replica.baseUrl()), connections))
+                .then();
+        Mono<Void> routes = Flux.fromIterable(loadBalancer.replicas())
+                .flatMap(replica -> Flux.fromIterable(warmup.routes())
+                        .flatMap(route -> httpClient.baseUrl(replica.baseUrl()).get().uri(route).response((response, body) -> body.then())))
+                .then();
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return httpClient.warmup()
+                    .then(opened)
+                    .then(routes)
+                    .doOnSuccess(done -> log.info("warmed up {} replicas, {} connections and {} routes each, in {} ms", loadBalancer.replicas().size(), connections, warmup.routes().size(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        });
+    }
+
+    // concurrent HEAD requests, each holding on to its connection until all are open, otherwise a quick response would
+    // hand its connection to the next request instead of that one opening another
+    private static Mono<Void> open(HttpClient client, int connections) {
+        return Mono.defer(() -> {
+            Sinks.Empty<Void> allOpen = Sinks.empty();
+            AtomicInteger open = new AtomicInteger();
+            return Flux.range(0, connections)
+                    .flatMap(i -> client.head().uri("/").response((response, body) -> {
+                        if (open.incrementAndGet() == connections) {
+                            allOpen.tryEmitEmpty();
+                        }
+                        return allOpen.asMono().then(body.then());
+                    }), Math.max(1, connections))
+                    .then();
+        });
+    }
+
+    /* *
+     * Closes the pooled connections and shuts the event loops down. Only needed when clients are created and thrown away, e.g. in tests.
+     * */
+    public void dispose() {
+        connectionProvider.dispose();
+        groupPools.forEach(ConnectionProvider::dispose);
+        loopResources.dispose();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package com.nonblocking.http.client.reactorclient.balancer;
+
+import com.nonblocking.http.client.reactorclient.config.LoadBalancerSettings;
+import com.nonblocking.http.client.reactorclient.exception.ClientError;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import io.netty.channel.ConnectTimeoutException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/* *
+ * Spreads the requests over the replicas of the external service: power of two choices, least outstanding requests.
+ * Every request looks at two random replicas and goes to the one with fewer requests outstanding, which keeps the load about
+ * as even as asking every replica, without a shared structure all requests contend on.
+ *
+ * Replicas are ejected passively: after LoadBalancerSettings.consecutiveFailures server errors or connect failures in a row a
+ * replica gets no requests for the ejection time. Once admitted again it slow-starts, its load counts up to ten times as high
+ * at first, so it is not flooded with everything the others were holding. When every replica is ejected they are all used anyway.
+ *
+ * Each replica has its own pool: the connection pool is per remote address, PoolSettings.maxConnections applies to each.
+ *
+ * Published meters: external.service.balancer.outstanding{pool, replica}, external.service.balancer.ejected{pool, replica},
+ * external.service.balancer.ejections{pool, replica}
+ * */
+public class LoadBalancer {
+
+    private final Replica[] replicas;
+
+    // httpClient is configured for every replica, only its base URL is replaced. The pool name tags the meters of the replicas
+    public LoadBalancer(String pool, List<String> baseUrls, HttpClient httpClient, LoadBalancerSettings settings) {
+        if (baseUrls.isEmpty()) {
+            throw new IllegalArgumentException("no replica to balance over");
+        }
+        this.replicas = baseUrls.stream()
+                .map(baseUrl -> new Replica(pool, baseUrl, httpClient.baseUrl(baseUrl), settings))
+                .toArray(Replica[]::new);
+    }
+
+    public List<Replica> replicas() {
+        return List.of(replicas);
+    }
+
+    /* *
+     * Sends the exchange to the chosen replica, a new choice for every subscription, so a retry may go elsewhere:
+     *
+     *      loadBalancer.exchange(client -> client.get().uri("/demo06/country").response(this::toResponse).next())
+     * */
+    public <T> Mono<T> exchange(Function<HttpClient, Mono<T>> exchange) {
+        return Mono.defer(() -> {
+            Replica replica = choose();
+            replica.started();
+            return exchange.apply(replica.httpClient())
+                    .doOnSuccess(value -> replica.succeeded())
+                    .doOnError(ex -> onError(replica, ex))
+                    .doFinally(signal -> replica.finished());
+        });
+    }
+
+    // a stream counts as outstanding on its replica for as long as it runs
+    public <T> Flux<T> stream(Function<HttpClient, Flux<T>> stream) {
+        return Flux.defer(() -> {
+            Replica replica = choose();
+            replica.started();
+            return stream.apply(replica.httpClient())
+                    .doOnComplete(replica::succeeded)
+                    .doOnError(ex -> onError(replica, ex))
+                    .doFinally(signal -> replica.finished());
+        });
+    }
+
+    Replica choose() {
+        if (replicas.length == 1) {
+            return replicas[0];
+        }
+        long now = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(replicas.length);
+        int second = random.nextInt(replicas.length - 1);
+        if (second >= first) {
+            second++; // two distinct replicas
+        }
+        Replica a = replicas[first];
+        Replica b = replicas[second];
+        boolean aAdmitted = a.isAdmitted(now);
+        boolean bAdmitted = b.isAdmitted(now);
+        if (aAdmitted && bAdmitted) {
+            return a.load(now) <= b.load(now) ? a : b;
+        }
+        if (aAdmitted || bAdmitted) {
+            return aAdmitted ? a : b;
+        }
+        for (int i = 1; i <= replicas.length; i++) {
+            Replica replica = replicas[(first + i) % replicas.length];
+            if (replica.isAdmitted(now)) {
+                return replica;
+            }
+        }
+        // every replica is ejected: better to try them than to fail every request until one is admitted again
+        return a.outstanding() <= b.outstanding() ? a : b;
+    }
+
+    // a single replica is never ejected, there would be nowhere else to go
+    private void onError(Replica replica, Throwable failure) {
+        if (failure instanceof ServerError || failure instanceof ConnectException || failure instanceof ConnectTimeoutException
+                || failure instanceof UnknownHostException) {
+            if (replicas.length > 1) {
+                replica.failed();
+            }
+        } else if (failure instanceof ClientError) {
+            replica.succeeded(); // the replica answered
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.nonblocking.http.client.reactorclient.balancer;
+
+import com.nonblocking.http.client.reactorclient.config.LoadBalancerSettings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* *
+ * One replica of the external service as the LoadBalancer sees it: the requests outstanding on it, its failures in a row
+ * and when it is admitted again after an ejection. All of it lives in atomics, nothing is locked on the request path.
+ * */
+@Slf4j
+public class Replica {
+
+    // the share of the traffic a replica starts its slow start with
+    private static final double MIN_WEIGHT = 0.1;
+
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final LoadBalancerSettings settings;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    // nano time the replica is admitted again after an ejection, its slow start begins there
+    private final AtomicLong admittedAtNanos;
+    private final Counter ejections;
+
+    Replica(String pool, String baseUrl, HttpClient httpClient, LoadBalancerSettings settings) {
+        this.baseUrl = baseUrl;
+        this.httpClient = httpClient;
+        this.settings = settings;
+        this.admittedAtNanos = new AtomicLong(System.nanoTime() - settings.slowStart().toNanos()); // at full weight from the start
+        Tags tags = Tags.of("pool", pool, "replica", baseUrl);
+        Metrics.gauge("external.service.balancer.outstanding", tags, this, Replica::outstanding);
+        Metrics.gauge("external.service.balancer.ejected", tags, this, replica -> replica.isAdmitted(System.nanoTime()) ? 0 : 1);
+        this.ejections = Metrics.counter("external.service.balancer.ejections", tags);
+    }
+
+    public String baseUrl() {
+        return baseUrl;
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    public boolean isAdmitted() {
+        return isAdmitted(System.nanoTime());
+    }
+
+    HttpClient httpClient() {
+        return httpClient;
+    }
+
+    boolean isAdmitted(long nowNanos) {
+        return nowNanos - admittedAtNanos.get() >= 0;
+    }
+
+    // the outstanding requests, including the one being placed, scaled up while the replica is still slow-starting
+    double load(long nowNanos) {
+        return (outstanding.get() + 1) / weight(nowNanos);
+    }
+
+    private double weight(long nowNanos) {
+        long slowStart = settings.slowStart().toNanos();
+        long admittedFor = nowNanos - admittedAtNanos.get();
+        if (admittedFor >= slowStart) {
+            return 1.0;
+        }
+        return Math.max(MIN_WEIGHT, (double) admittedFor / slowStart);
+    }
+
+    void started() {
+        outstanding.incrementAndGet();
+    }
+
+    void finished() {
+        outstanding.decrementAndGet();
+    }
+
+    void succeeded() {
+        if (consecutiveFailures.get() != 0) { // read first, so healthy replicas are not written to on every response
+            consecutiveFailures.set(0);
+        }
+    }
+
+    // failures of requests sent before an ejection and answered during it do not count towards the next one
+    void failed() {
+        long now = System.nanoTime();
+        if (isAdmitted(now) && consecutiveFailures.incrementAndGet() >= settings.consecutiveFailures()) {
+            eject(now);
+        }
+    }
+
+    private void eject(long nowNanos) {
+        long admittedAt = admittedAtNanos.get();
+        if (nowNanos - admittedAt >= 0 && admittedAtNanos.compareAndSet(admittedAt, nowNanos + settings.ejectionTime().toNanos())) {
+            consecutiveFailures.set(0);
+            ejections.increment();
+            log.warn("replica {} ejected for {} after {} failures in a row", baseUrl, settings.ejectionTime(), settings.consecutiveFailures());
+        }
+    }
+}
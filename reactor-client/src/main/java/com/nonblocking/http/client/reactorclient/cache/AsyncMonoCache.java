@@ -0,0 +1,73 @@
+package com.nonblocking.http.client.reactorclient.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nonblocking.http.client.reactorclient.coalesce.SingleFlight;
+import com.nonblocking.http.client.reactorclient.config.CacheSettings;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/* *
+ * Size bounded, TTL based cache for Mono lookups, backed by Caffeine (W-TinyLFU admission and eviction).
+ *
+ * The cache holds loaded values only. Concurrent subscribers for a missing key share one load through a SingleFlight, so
+ * a cancelling subscriber only leaves the group, and the load itself (the HTTP exchange) is cancelled once every subscriber
+ * cancelled. The load runs in the Reactor Context of the first subscriber. Empty results and errors are not cached.
+ * Hit, miss and eviction statistics are published to Micrometer as cache.* meters tagged with the cache name.
+ * */
+public class AsyncMonoCache<K, V> {
+
+    private final boolean enabled;
+    private final Cache<K, V> cache;
+    private final SingleFlight<K, V> loads = new SingleFlight<>();
+
+    public AsyncMonoCache(String name, CacheSettings settings) {
+        this.enabled = settings.enabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.maximumSize())
+                .expireAfterWrite(settings.ttl())
+                .recordStats()
+                .build();
+        if (enabled) {
+            CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache, name);
+        }
+    }
+
+    public Mono<V> get(K key, Supplier<Mono<V>> loader) {
+        if (!enabled) {
+            return loads.execute(key, loader);
+        }
+        return Mono.defer(() -> {
+            V cached = cache.getIfPresent(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return loads.execute(key, () -> loader.get().doOnNext(value -> cache.put(key, value)));
+        });
+    }
+
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    // loads that still have a subscriber
+    public int loading() {
+        return loads.inFlight();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
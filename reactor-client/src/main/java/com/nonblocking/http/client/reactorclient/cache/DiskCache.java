@@ -0,0 +1,514 @@
+package com.nonblocking.http.client.reactorclient.cache;
+
+import com.nonblocking.http.client.reactorclient.config.DiskCacheSettings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/* *
+ * Responses on local disk, so a restarted client does not start cold: a second level behind the in-memory AsyncMonoCache.
+ *
+ * The responses are appended to memory-mapped segment files of segmentBytes each, one record per response:
+ *
+ *      crc (4) | key length (4) | value length (4) | written at, epoch millis (8) | key | value
+ *
+ * A value length of -1 is a tombstone without a value, written by invalidate() so the key stays gone after a restart. When its
+ * segment is evicted, a tombstone younger than the ttl moves on to the active segment unless the key was written again since.
+ * The value it hides may still be on disk in an older segment.
+ *
+ * The index maps a key to the location of its latest record, segment id and offset packed into one long. At startup it is
+ * loaded by scanning the segments in id order, later records replacing earlier ones; the scan of a segment stops at the first
+ * record whose crc does not match, which is where a crash cut the last write. Expired records are skipped.
+ *
+ * Reads take no lock: an index lookup and two absolute reads from the mapped buffer, which is safe from any number of event
+ * loop threads. Writes append under the cache's monitor, on boundedElastic, since rolling to a new segment creates a file.
+ * A replaced record stays where it is until its segment goes. When a new segment would take the files over maxDiskBytes,
+ * the least recently read segment is deleted with all of its records.
+ *
+ * A segment is reference counted: the cache holds one reference while the segment is in use, and every read holds one while
+ * it copies from the buffer. An evicted or closed segment is unmapped when its last reader is done, so the mapped memory stays
+ * within maxDiskBytes and is not left until the buffer happens to be collected.
+ *
+ * The directory belongs to one client: a lock file keeps a second one out, in this process or another.
+ *
+ * Published meters: external.service.disk-cache.lookups{cache, result=hit|miss|expired},
+ * external.service.disk-cache.evictions{cache}, external.service.disk-cache.entries{cache}, external.service.disk-cache.bytes{cache}
+ * */
+@Slf4j
+public class DiskCache implements AutoCloseable {
+
+    private static final int MAGIC = 0x45534331; // "ESC1"
+    private static final int SEGMENT_HEADER = 8;
+    private static final int RECORD_HEADER = 20;
+    private static final int TOMBSTONE = -1;
+    // a segment's last read time is written at most once per millisecond, so readers of one segment rarely write the same line
+    private static final long TOUCH_RESOLUTION_NANOS = 1_000_000;
+    private static final MethodHandle INVOKE_CLEANER = invokeCleaner();
+
+    private final boolean enabled;
+    private final DiskCacheSettings settings;
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter expiredCounter;
+    private final Counter evictions;
+    private FileChannel lockChannel;
+    private FileLock lock;
+    // written under the monitor only
+    private Segment active;
+    private int nextSegmentId = 1;
+
+    public DiskCache(String name, DiskCacheSettings settings) {
+        this.enabled = settings.enabled();
+        this.settings = settings;
+        Tags tags = Tags.of("cache", name);
+        this.hitCounter = Metrics.counter("external.service.disk-cache.lookups", tags.and("result", "hit"));
+        this.missCounter = Metrics.counter("external.service.disk-cache.lookups", tags.and("result", "miss"));
+        this.expiredCounter = Metrics.counter("external.service.disk-cache.lookups", tags.and("result", "expired"));
+        this.evictions = Metrics.counter("external.service.disk-cache.evictions", tags);
+        if (enabled) {
+            Metrics.gauge("external.service.disk-cache.entries", tags, index, Map::size);
+            Metrics.gauge("external.service.disk-cache.bytes", tags, this, DiskCache::diskBytes);
+            open();
+        }
+    }
+
+    /* *
+     * The response stored for the key, or else the loader's, which is then stored in the background.
+     * Empty results and errors are not stored.
+     * */
+    public Mono<String> get(String key, Supplier<Mono<String>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return Mono.defer(() -> {
+            String stored = read(key);
+            if (stored != null) {
+                return Mono.just(stored);
+            }
+            return loader.get().doOnNext(value -> Schedulers.boundedElastic().schedule(() -> write(key, value)));
+        });
+    }
+
+    // null when the key is not on disk, or no longer valid
+    public String read(String key) {
+        Long location = index.get(key);
+        if (location == null) {
+            count(misses, missCounter);
+            return null;
+        }
+        Segment segment = segments.get(segmentId(location));
+        if (segment == null || !segment.retain()) {
+            count(misses, missCounter); // evicted since the lookup
+            return null;
+        }
+        try {
+            int offset = offset(location);
+            MappedByteBuffer buffer = segment.buffer;
+            int keyLength = buffer.getInt(offset + 4);
+            int valueLength = buffer.getInt(offset + 8);
+            if (expired(buffer.getLong(offset + 12), System.currentTimeMillis())) {
+                index.remove(key, location);
+                count(expired, expiredCounter);
+                return null;
+            }
+            byte[] value = new byte[valueLength];
+            buffer.get(offset + RECORD_HEADER + keyLength, value);
+            segment.touch();
+            count(hits, hitCounter);
+            return new String(value, StandardCharsets.UTF_8);
+        } finally {
+            segment.release();
+        }
+    }
+
+    public synchronized void write(String key, String value) {
+        if (lock == null) {
+            return; // closed
+        }
+        long location = append(key, value.getBytes(StandardCharsets.UTF_8), System.currentTimeMillis());
+        if (location != -1) {
+            // publishing the location makes the record visible to the readers
+            index.put(key, location);
+        }
+    }
+
+    // also on disk, with a tombstone, so the key does not come back with the next warm load
+    public synchronized void invalidate(String key) {
+        if (index.remove(key) != null && lock != null) {
+            append(key, null, System.currentTimeMillis());
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public int segments() {
+        return segments.size();
+    }
+
+    public long diskBytes() {
+        return segments.values().stream().mapToLong(segment -> segment.capacity).sum();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    // expired records included
+    public long misses() {
+        return misses.sum() + expired.sum();
+    }
+
+    // flushes the segments and releases the directory; lookups after it miss, writes are dropped
+    @Override
+    public synchronized void close() {
+        if (lock == null) {
+            return;
+        }
+        segments.values().forEach(segment -> {
+            segment.buffer.force();
+            segment.release();
+        });
+        segments.clear();
+        index.clear();
+        active = null;
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            log.warn("disk cache lock could not be released: {}", e.toString());
+        }
+        lock = null;
+    }
+
+    private synchronized void open() {
+        Path directory = settings.directory();
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lockChannel.close();
+                throw new IllegalStateException("disk cache directory is in use by another disk cache in this process: " + directory);
+            }
+            if (lock == null) {
+                lockChannel.close();
+                throw new IllegalStateException("disk cache directory is in use by another process: " + directory);
+            }
+            warmLoad(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("disk cache could not be opened in " + directory, e);
+        }
+    }
+
+    private void warmLoad(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> segmentId(file) > 0)
+                    .sorted(Comparator.comparingInt(DiskCache::segmentId))
+                    .toList();
+        }
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        for (Path file : files) {
+            Segment segment = Segment.open(file, segmentId(file));
+            if (segment == null) {
+                log.warn("{} is not a disk cache segment, deleted", file);
+                Files.delete(file);
+                continue;
+            }
+            // older segments count as read longer ago
+            segment.lastReadNanos = start - (long) (files.size() - segments.size()) * TOUCH_RESOLUTION_NANOS;
+            segment.end = scan(segment, (key, location, writtenAt, tombstone) -> {
+                if (tombstone || expired(writtenAt, now)) {
+                    index.remove(key);
+                } else {
+                    index.put(key, location);
+                }
+            });
+            segments.put(segment.id, segment);
+            nextSegmentId = segment.id + 1;
+            active = segment; // the last one is appended to
+        }
+        log.info("disk cache warm-loaded {} entries from {} segments in {} ms", index.size(), segments.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // appends a record to the active segment, rolling to a new one when it is full; null is a tombstone. The location, -1 when
+    // the record could not be stored
+    private long append(String key, byte[] value, long writtenAtMillis) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_HEADER + keyBytes.length + (value == null ? 0 : value.length);
+        if (length > settings.segmentBytes() - SEGMENT_HEADER) {
+            return -1;
+        }
+        try {
+            if (active == null || active.end + length > active.capacity) {
+                roll();
+            }
+        } catch (IOException e) {
+            log.warn("disk cache segment could not be created, {} is not stored: {}", key, e.toString());
+            return -1;
+        }
+        return put(active, keyBytes, value, writtenAtMillis);
+    }
+
+    private static long put(Segment segment, byte[] key, byte[] value, long writtenAtMillis) {
+        int offset = segment.end;
+        int length = RECORD_HEADER + key.length + (value == null ? 0 : value.length);
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.putInt(offset + 4, key.length)
+                .putInt(offset + 8, value == null ? TOMBSTONE : value.length)
+                .putLong(offset + 12, writtenAtMillis)
+                .put(offset + RECORD_HEADER, key);
+        if (value != null) {
+            buffer.put(offset + RECORD_HEADER + key.length, value);
+        }
+        buffer.putInt(offset, crc(buffer, offset, length));
+        segment.end += length;
+        return location(segment.id, offset);
+    }
+
+    private void roll() throws IOException {
+        List<Tombstone> tombstones = new ArrayList<>();
+        while (diskBytes() + settings.segmentBytes() > settings.maxDiskBytes() && !segments.isEmpty()) {
+            evictLeastRecentlyRead(tombstones);
+        }
+        active = Segment.create(settings.directory(), nextSegmentId++, settings.segmentBytes());
+        segments.put(active.id, active);
+        for (Tombstone tombstone : tombstones) {
+            byte[] key = tombstone.key().getBytes(StandardCharsets.UTF_8);
+            if (active.end + RECORD_HEADER + key.length > active.capacity) {
+                log.warn("disk cache dropped {} tombstones of evicted segments, their keys may come back after a restart",
+                        tombstones.size() - tombstones.indexOf(tombstone));
+                break;
+            }
+            put(active, key, null, tombstone.writtenAtMillis());
+        }
+    }
+
+    // tombstones that still matter are added to the given list, to be written again
+    private void evictLeastRecentlyRead(List<Tombstone> tombstones) throws IOException {
+        Segment victim = segments.values().stream()
+                .min(Comparator.comparingLong(segment -> segment.lastReadNanos))
+                .orElseThrow();
+        long now = System.currentTimeMillis();
+        scan(victim, (key, location, writtenAt, tombstone) -> {
+            if (!tombstone) {
+                index.remove(key, location);
+            } else if (!expired(writtenAt, now) && !index.containsKey(key)) {
+                tombstones.add(new Tombstone(key, writtenAt)); // not written again since, an older value may still be on disk
+            }
+        });
+        segments.remove(victim.id);
+        if (victim == active) {
+            active = null;
+        }
+        Files.deleteIfExists(victim.file);
+        victim.release();
+        evictions.increment();
+    }
+
+    // calls the visitor for every intact record of the segment, returns the offset after the last one
+    private static int scan(Segment segment, RecordVisitor visitor) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = SEGMENT_HEADER;
+        while (offset + RECORD_HEADER <= segment.capacity) {
+            int keyLength = buffer.getInt(offset + 4);
+            int valueLength = buffer.getInt(offset + 8);
+            boolean tombstone = valueLength == TOMBSTONE;
+            int storedLength = tombstone ? 0 : valueLength;
+            if (keyLength <= 0 || storedLength < 0 || (long) offset + RECORD_HEADER + keyLength + storedLength > segment.capacity) {
+                break;
+            }
+            int length = RECORD_HEADER + keyLength + storedLength;
+            if (buffer.getInt(offset) != crc(buffer, offset, length)) {
+                break;
+            }
+            byte[] key = new byte[keyLength];
+            buffer.get(offset + RECORD_HEADER, key);
+            visitor.visit(new String(key, StandardCharsets.UTF_8), location(segment.id, offset), buffer.getLong(offset + 12), tombstone);
+            offset += length;
+        }
+        return offset;
+    }
+
+    // over everything but the crc itself
+    private static int crc(MappedByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + 4, length - 4));
+        return (int) crc.getValue();
+    }
+
+    private boolean expired(long writtenAtMillis, long nowMillis) {
+        return nowMillis - writtenAtMillis > settings.ttl().toMillis();
+    }
+
+    // gives the mapping back right away; without the cleaner it goes whenever the buffer is collected
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+        } catch (Throwable e) {
+            log.warn("disk cache segment could not be unmapped, it is left to the garbage collector: {}", e.toString());
+        }
+    }
+
+    // sun.misc.Unsafe.invokeCleaner, looked up reflectively so the build does not depend on the internal API
+    private static MethodHandle invokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("disk cache segments cannot be unmapped explicitly, they are left to the garbage collector: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static void count(LongAdder adder, Counter counter) {
+        adder.increment();
+        counter.increment();
+    }
+
+    private static long location(int segmentId, int offset) {
+        return (long) segmentId << 32 | offset;
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    // the id from a segment file name, 0 for other files
+    private static int segmentId(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith("segment-") || !name.endsWith(".dat")) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(name.substring("segment-".length(), name.length() - ".dat".length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private interface RecordVisitor {
+
+        void visit(String key, long location, long writtenAtMillis, boolean tombstone);
+    }
+
+    private record Tombstone(String key, long writtenAtMillis) {
+    }
+
+    private static class Segment {
+
+        private final int id;
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        // the offset the next record is appended at, written under the cache's monitor
+        private int end = SEGMENT_HEADER;
+        private volatile long lastReadNanos = System.nanoTime();
+        // the cache's own reference and one per read in progress, unmapped at 0
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Segment(int id, Path file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+
+        // the mapping outlives the channel, the file is zero-filled up to its size
+        private static Segment create(Path directory, int id, int size) throws IOException {
+            Path file = directory.resolve(String.format("segment-%08d.dat", id));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(0, MAGIC);
+                return new Segment(id, file, buffer);
+            }
+        }
+
+        // null when the file is not a segment
+        private static Segment open(Path file, int id) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                if (size < SEGMENT_HEADER || size > Integer.MAX_VALUE) {
+                    return null;
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                return buffer.getInt(0) == MAGIC ? new Segment(id, file, buffer) : null;
+            }
+        }
+
+        // false once the segment is unmapped, or about to be
+        private boolean retain() {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                unmap(buffer);
+            }
+        }
+
+        private void touch() {
+            long now = System.nanoTime();
+            if (now - lastReadNanos > TOUCH_RESOLUTION_NANOS) {
+                lastReadNanos = now;
+            }
+        }
+    }
+}
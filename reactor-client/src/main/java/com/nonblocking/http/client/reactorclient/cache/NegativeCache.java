@@ -0,0 +1,114 @@
+package com.nonblocking.http.client.reactorclient.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nonblocking.http.client.reactorclient.config.NegativeCacheSettings;
+import com.nonblocking.http.client.reactorclient.exception.ClientError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/* *
+ * Remembers the keys a lookup found nothing for, so the next lookup of such a key is answered without a round trip.
+ * Two kinds of nothing are kept apart: an empty answer (the id is unknown) and a ClientError (the request itself is bad).
+ * A hit replays the same signal, completing empty or failing with a new ClientError.
+ *
+ * Only answers about the key are remembered. Server errors, timeouts and the like say nothing about it and are not cached.
+ * Entries live for a short ttl, in a Caffeine cache of their own, next to the AsyncMonoCache of the values.
+ *
+ * Published meters: external.service.negative-cache.hits{cache, result=empty|client-error},
+ * external.service.negative-cache.stored{cache, result=empty|client-error}, external.service.negative-cache.size{cache}
+ * */
+public class NegativeCache<K> {
+
+    public enum Result {
+        EMPTY("empty"),
+        CLIENT_ERROR("client-error");
+
+        private final String tag;
+
+        Result(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final boolean enabled;
+    private final Cache<K, Result> cache;
+    // local counts next to the counters, readable when no registry is configured
+    private final Map<Result, Tally> hits = new EnumMap<>(Result.class);
+    private final Map<Result, Tally> stored = new EnumMap<>(Result.class);
+
+    public NegativeCache(String name, NegativeCacheSettings settings) {
+        this.enabled = settings.enabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.maximumSize())
+                .expireAfterWrite(settings.ttl())
+                .build();
+        Tags tags = Tags.of("cache", name);
+        for (Result result : Result.values()) {
+            hits.put(result, new Tally(new LongAdder(), Metrics.counter("external.service.negative-cache.hits", tags.and("result", result.tag))));
+            stored.put(result, new Tally(new LongAdder(), Metrics.counter("external.service.negative-cache.stored", tags.and("result", result.tag))));
+        }
+        Metrics.gauge("external.service.negative-cache.size", tags, cache, Cache::estimatedSize);
+    }
+
+    public <V> Mono<V> get(K key, Supplier<Mono<V>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return Mono.defer(() -> {
+            Result known = cache.getIfPresent(key);
+            if (known != null) {
+                hits.get(known).increment();
+                return known == Result.EMPTY ? Mono.empty() : Mono.error(new ClientError());
+            }
+            return loader.get()
+                    .switchIfEmpty(Mono.fromRunnable(() -> store(key, Result.EMPTY)))
+                    .doOnError(ClientError.class, error -> store(key, Result.CLIENT_ERROR));
+        });
+    }
+
+    // null when the key is not known to find nothing
+    public Result getIfPresent(K key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public long hits(Result result) {
+        return hits.get(result).count.sum();
+    }
+
+    public long stored(Result result) {
+        return stored.get(result).count.sum();
+    }
+
+    private void store(K key, Result result) {
+        cache.put(key, result);
+        stored.get(result).increment();
+    }
+
+    private record Tally(LongAdder count, Counter counter) {
+
+        private void increment() {
+            count.increment();
+            counter.increment();
+        }
+    }
+}
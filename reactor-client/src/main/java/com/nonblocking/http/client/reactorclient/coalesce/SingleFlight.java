@@ -0,0 +1,40 @@
+package com.nonblocking.http.client.reactorclient.coalesce;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/* *
+ * In-flight de-duplication of Mono calls. Concurrent subscribers asking for the same key share one upstream call and all
+ * receive its result (value, empty or error). Once the call terminates the key is forgotten, so later subscribers trigger a new call.
+ *
+ * Cancellation is reference counted (publish().refCount(1)): a waiter that cancels only leaves the group,
+ * the upstream call is cancelled when the last waiter cancels.
+ * */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> inFlight.computeIfAbsent(key, k -> share(k, call)));
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private Mono<V> share(K key, Supplier<Mono<V>> call) {
+        AtomicReference<Mono<V>> self = new AtomicReference<>();
+        Mono<V> shared = Flux.from(Mono.defer(call))
+                .doFinally(signal -> inFlight.remove(key, self.get())) // upstream terminated or was cancelled by the last waiter
+                .publish()
+                .refCount(1)
+                .next();
+        self.set(shared);
+        return shared;
+    }
+}
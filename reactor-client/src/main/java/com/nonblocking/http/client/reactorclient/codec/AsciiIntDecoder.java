@@ -0,0 +1,167 @@
+package com.nonblocking.http.client.reactorclient.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ByteProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+/* *
+ * Parses ASCII integers straight from network buffers, without turning chunks into Strings. Two framings are supported:
+ *  - delimited ("97\n103\n"): a value ends at the first byte that is not a digit, so one chunk may carry several values and
+ *    a value may be split across chunks: the digits seen so far are kept until the next chunk arrives.
+ *  - chunk framed ("97", "103"): one value per chunk without a delimiter, so the end of a chunk ends a value too. Digits never
+ *    carry over to the next chunk, which would run two prices together; a chunk Netty splits in pieces yields one value per piece.
+ * A value still pending when the stream completes is emitted as well.
+ *
+ * One decoder holds the state of one stream, so use decode(Flux) (which creates one per subscription) or one instance per connection.
+ * */
+public class AsciiIntDecoder implements ByteProcessor {
+
+    private static final int[] NONE = new int[0];
+    private static final int MAX_DIGITS = 10;
+
+    private final boolean chunkFramed;
+    private long value;
+    private int digits;
+    private boolean negative;
+    private IntConsumer sink;
+
+    // delimited
+    public AsciiIntDecoder() {
+        this(false);
+    }
+
+    public AsciiIntDecoder(boolean chunkFramed) {
+        this.chunkFramed = chunkFramed;
+    }
+
+    /* *
+     * Decodes the stream of delimited values. The chunks are parsed while the buffers are still owned by Reactor Netty, so this
+     * is safe to use on responseContent() without retaining them.
+     * */
+    public static Flux<Integer> decode(Flux<ByteBuf> chunks) {
+        return decode(chunks, false);
+    }
+
+    public static Flux<Integer> decode(Flux<ByteBuf> chunks, boolean chunkFramed) {
+        return Flux.defer(() -> {
+            AsciiIntDecoder decoder = new AsciiIntDecoder(chunkFramed);
+            return chunks.map(decoder::decodeChunk)
+                    .concatWith(Mono.fromSupplier(decoder::pending))
+                    .flatMapIterable(IntArray::new);
+        });
+    }
+
+    /* *
+     * Feeds every complete value of the chunk to the consumer, without allocating. Does not release the buffer.
+     * */
+    public void decode(ByteBuf chunk, IntConsumer consumer) {
+        this.sink = consumer;
+        try {
+            chunk.forEachByte(this);
+        } finally {
+            this.sink = null;
+        }
+        if (chunkFramed) {
+            finish(consumer);
+        }
+    }
+
+    /* *
+     * Completes a value still pending at the end of the stream.
+     * */
+    public void finish(IntConsumer consumer) {
+        if (digits > 0) {
+            consumer.accept(complete());
+        }
+        negative = false;
+    }
+
+    @Override
+    public boolean process(byte b) {
+        if (b >= '0' && b <= '9') {
+            if (++digits > MAX_DIGITS) {
+                throw new NumberFormatException("integer longer than " + MAX_DIGITS + " digits");
+            }
+            value = value * 10 + (b - '0');
+        } else if (b == '-' && digits == 0) {
+            negative = true;
+        } else {
+            if (digits > 0) {
+                sink.accept(complete());
+            }
+            negative = false;
+        }
+        return true;
+    }
+
+    private int[] decodeChunk(ByteBuf chunk) {
+        Collector collector = new Collector(chunk.readableBytes() / 2 + 1);
+        decode(chunk, collector);
+        return collector.values();
+    }
+
+    private int[] pending() {
+        Collector collector = new Collector(1);
+        finish(collector);
+        return collector.values();
+    }
+
+    private int complete() {
+        long result = negative ? -value : value;
+        if (result > Integer.MAX_VALUE || result < Integer.MIN_VALUE) {
+            throw new NumberFormatException("integer out of range: " + result);
+        }
+        value = 0;
+        digits = 0;
+        negative = false;
+        return (int) result;
+    }
+
+    private static class Collector implements IntConsumer {
+
+        private final int[] values;
+        private int size;
+
+        Collector(int capacity) {
+            this.values = new int[capacity];
+        }
+
+        @Override
+        public void accept(int value) {
+            values[size++] = value;
+        }
+
+        int[] values() {
+            return size == 0 ? NONE : size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+
+    private record IntArray(int[] values) implements Iterable<Integer> {
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < values.length;
+                }
+
+                @Override
+                public Integer next() {
+                    if (index >= values.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return values[index++]; // Integer.valueOf, cached for small values such as stock prices
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.nonblocking.http.client.reactorclient.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.TooLongFrameException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/* *
+ * Splits a stream of network chunks into delimiter terminated frames and parses each frame with a FrameParser,
+ * whatever boundaries TCP delivered. Frames that lie completely inside a chunk are parsed in place; only a frame split
+ * across chunks is copied into a pooled cumulation buffer, which is bounded by maxFrameLength and released when the
+ * stream completes, fails or is cancelled. Empty frames are skipped; with '\n' as delimiter a trailing '\r' is dropped too.
+ *
+ * Without a delimiter (decodeChunks) every buffer is one frame, parsed in place. That is opt-in and only as good as the chunking:
+ * Netty hands over an HTTP chunk that spans TCP reads, or exceeds maxChunkSize, in several pieces, and each is parsed as a frame.
+ * */
+public class DelimitedFrameDecoder<T> {
+
+    private final byte delimiter;
+    private final boolean chunkFramed;
+    private final int maxFrameLength;
+    private final FrameParser<T> parser;
+    private ByteBuf cumulation;
+    private boolean released;
+
+    DelimitedFrameDecoder(byte delimiter, int maxFrameLength, FrameParser<T> parser) {
+        this(delimiter, false, maxFrameLength, parser);
+    }
+
+    private DelimitedFrameDecoder(byte delimiter, boolean chunkFramed, int maxFrameLength, FrameParser<T> parser) {
+        this.delimiter = delimiter;
+        this.chunkFramed = chunkFramed;
+        this.maxFrameLength = maxFrameLength;
+        this.parser = parser;
+    }
+
+    /* *
+     * Chunks are decoded while Reactor Netty still owns them, so this is safe to use on responseContent() without retaining them.
+     * */
+    public static <T> Flux<T> decode(Flux<ByteBuf> chunks, byte delimiter, int maxFrameLength, FrameParser<T> parser) {
+        return decode(chunks, () -> new DelimitedFrameDecoder<>(delimiter, maxFrameLength, parser));
+    }
+
+    public static <T> Flux<T> decodeLines(Flux<ByteBuf> chunks, int maxFrameLength, FrameParser<T> parser) {
+        return decode(chunks, (byte) '\n', maxFrameLength, parser);
+    }
+
+    // one frame per chunk, for streams without a delimiter
+    public static <T> Flux<T> decodeChunks(Flux<ByteBuf> chunks, int maxFrameLength, FrameParser<T> parser) {
+        return decode(chunks, () -> new DelimitedFrameDecoder<>((byte) 0, true, maxFrameLength, parser));
+    }
+
+    // one decoder per subscription, it holds the state of one stream
+    private static <T> Flux<T> decode(Flux<ByteBuf> chunks, Supplier<DelimitedFrameDecoder<T>> decoders) {
+        return Flux.defer(() -> {
+            DelimitedFrameDecoder<T> decoder = decoders.get();
+            return chunks.map(decoder::decode)
+                    .concatWith(Mono.fromSupplier(decoder::remaining))
+                    .flatMapIterable(frames -> frames)
+                    .doFinally(signal -> decoder.release());
+        });
+    }
+
+    // synchronized, as a cancel may release the cumulation from another thread
+    synchronized List<T> decode(ByteBuf chunk) {
+        if (released) {
+            return List.of();
+        }
+        int index = chunk.readerIndex();
+        int end = chunk.writerIndex();
+        if (chunkFramed) {
+            checkLength(end - index);
+            List<T> frame = new ArrayList<>(1);
+            parse(chunk, index, end - index, frame);
+            return frame;
+        }
+        List<T> frames = new ArrayList<>(4);
+        while (index < end) {
+            int delimiterIndex = chunk.indexOf(index, end, delimiter);
+            if (delimiterIndex < 0) {
+                accumulate(chunk, index, end - index);
+                break;
+            }
+            int length = delimiterIndex - index;
+            if (cumulation != null && cumulation.isReadable()) {
+                accumulate(chunk, index, length);
+                parse(cumulation, cumulation.readerIndex(), cumulation.readableBytes(), frames);
+                cumulation.clear();
+            } else {
+                checkLength(length);
+                parse(chunk, index, length, frames);
+            }
+            index = delimiterIndex + 1;
+        }
+        return frames;
+    }
+
+    // a last frame without delimiter
+    synchronized List<T> remaining() {
+        List<T> frames = new ArrayList<>(1);
+        if (!released && cumulation != null && cumulation.isReadable()) {
+            parse(cumulation, cumulation.readerIndex(), cumulation.readableBytes(), frames);
+            cumulation.clear();
+        }
+        return frames;
+    }
+
+    synchronized void release() {
+        released = true;
+        if (cumulation != null) {
+            cumulation.release();
+            cumulation = null;
+        }
+    }
+
+    // visible for tests
+    synchronized ByteBuf cumulation() {
+        return cumulation;
+    }
+
+    private void accumulate(ByteBuf chunk, int index, int length) {
+        int buffered = cumulation == null ? 0 : cumulation.readableBytes();
+        checkLength(buffered + length);
+        if (cumulation == null) {
+            cumulation = ByteBufAllocator.DEFAULT.buffer(Math.min(maxFrameLength, Math.max(64, 2 * length)), maxFrameLength);
+        }
+        cumulation.writeBytes(chunk, index, length);
+    }
+
+    private void parse(ByteBuf buffer, int index, int length, List<T> frames) {
+        if (delimiter == '\n' && length > 0 && buffer.getByte(index + length - 1) == '\r') {
+            length--;
+        }
+        if (length > 0) {
+            frames.add(parser.parse(buffer, index, length));
+        }
+    }
+
+    private void checkLength(int length) {
+        if (length > maxFrameLength) {
+            throw new TooLongFrameException("frame length exceeds " + maxFrameLength + ": " + length);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.nonblocking.http.client.reactorclient.codec;
+
+import io.netty.buffer.ByteBuf;
+
+/* *
+ * Turns one frame, given as a region of a buffer, into a value. The region is only valid during the call,
+ * so the parser must not keep a reference to the buffer.
+ * */
+@FunctionalInterface
+public interface FrameParser<T> {
+
+    T parse(ByteBuf buffer, int index, int length);
+}
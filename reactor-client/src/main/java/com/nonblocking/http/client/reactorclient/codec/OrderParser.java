@@ -0,0 +1,65 @@
+package com.nonblocking.http.client.reactorclient.codec;
+
+import com.nonblocking.http.client.assignment.hotandcoldpublisher.Order;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+
+/* *
+ * Parses an order message "item:category:price:quantity" (price being the total price) from a buffer region.
+ * Only item and category become Strings, price and quantity are read from the ASCII digits directly.
+ * */
+public class OrderParser implements FrameParser<Order> {
+
+    private static final byte SEPARATOR = ':';
+
+    @Override
+    public Order parse(ByteBuf buffer, int index, int length) {
+        int end = index + length;
+        int itemEnd = separator(buffer, index, end);
+        int categoryEnd = separator(buffer, itemEnd + 1, end);
+        int priceEnd = separator(buffer, categoryEnd + 1, end);
+        return new Order(
+                buffer.toString(index, itemEnd - index, StandardCharsets.UTF_8),
+                buffer.toString(itemEnd + 1, categoryEnd - itemEnd - 1, StandardCharsets.UTF_8),
+                parseDecimal(buffer, categoryEnd + 1, priceEnd),
+                (int) parseDecimal(buffer, priceEnd + 1, end)
+        );
+    }
+
+    private static int separator(ByteBuf buffer, int from, int end) {
+        int index = buffer.indexOf(from, end, SEPARATOR);
+        if (index < 0) {
+            throw new IllegalArgumentException("malformed order: " + buffer.toString(from, end - from, StandardCharsets.UTF_8));
+        }
+        return index;
+    }
+
+    // [-]digits[.digits]
+    private static double parseDecimal(ByteBuf buffer, int from, int end) {
+        boolean negative = from < end && buffer.getByte(from) == '-';
+        long digits = 0;
+        long scale = 1;
+        boolean fraction = false;
+        int seen = 0;
+        for (int i = negative ? from + 1 : from; i < end; i++) {
+            byte b = buffer.getByte(i);
+            if (b == '.' && !fraction) {
+                fraction = true;
+            } else if (b >= '0' && b <= '9' && seen < 18) {
+                digits = digits * 10 + (b - '0');
+                seen++;
+                if (fraction) {
+                    scale *= 10;
+                }
+            } else {
+                throw new NumberFormatException("not a decimal: " + buffer.toString(from, end - from, StandardCharsets.US_ASCII));
+            }
+        }
+        if (seen == 0) {
+            throw new NumberFormatException("empty number");
+        }
+        double value = (double) digits / scale;
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,66 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/* *
+ * Bulkheads between groups of request/response endpoints of ExternalServiceClient, e.g. the slow demo05 lookups apart from the rest:
+ *
+ *      BulkheadSettings.defaults().with("demo05", BulkheadSettings.Group.builder()
+ *              .endpoints(Set.of("demo05.price", "demo05.product", "demo05.review"))
+ *              .pool(PoolSettings.defaults().toBuilder().name("external-service-demo05").maxConnections(50).build())
+ *              .maxConcurrent(50)
+ *              .maxQueue(100)
+ *              .maxWait(Duration.ofSeconds(2))
+ *              .build());
+ *
+ *  - groups:  bulkheads by group name. Endpoints in no group share ClientSettings.pool and have no permit limit.
+ *
+ * Every group has:
+ *  - endpoints:      names of its endpoints, e.g. "demo05.price". An endpoint belongs to one group at most.
+ *  - pool:           its own connection pool. Give it its own name, the pool gauges are tagged with it.
+ *  - maxConcurrent:  calls of the group in flight at once.
+ *  - maxQueue:       calls waiting for a permit once maxConcurrent are in flight. More are rejected with BulkheadFullError.
+ *  - maxWait:        how long a call waits for a permit before it is rejected with BulkheadFullError.
+ * */
+@Builder(toBuilder = true)
+public record BulkheadSettings(Map<String, Group> groups) {
+
+    @Builder(toBuilder = true)
+    public record Group(Set<String> endpoints, PoolSettings pool, int maxConcurrent, int maxQueue, Duration maxWait) {
+
+        public Group {
+            endpoints = Set.copyOf(endpoints);
+            if (maxConcurrent < 1 || maxQueue < 0) {
+                throw new IllegalArgumentException("invalid bulkhead: " + maxConcurrent + " concurrent, " + maxQueue + " queued");
+            }
+        }
+    }
+
+    public BulkheadSettings {
+        groups = Map.copyOf(groups);
+        Set<String> grouped = new HashSet<>();
+        groups.values().forEach(group -> group.endpoints().forEach(endpoint -> {
+            if (!grouped.add(endpoint)) {
+                throw new IllegalArgumentException("endpoint in more than one bulkhead: " + endpoint);
+            }
+        }));
+    }
+
+    public static BulkheadSettings defaults() {
+        return BulkheadSettings.builder()
+                .groups(Map.of())
+                .build();
+    }
+
+    public BulkheadSettings with(String name, Group group) {
+        Map<String, Group> updated = new HashMap<>(groups);
+        updated.put(name, group);
+        return new BulkheadSettings(updated);
+    }
+}
@@ -0,0 +1,29 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/* *
+ * In-memory cache in front of the product name lookups.
+ *  - enabled:      when false every lookup goes over the wire.
+ *  - maximumSize:  entries kept per cache. Above it, W-TinyLFU decides which entry is admitted and which one is evicted.
+ *  - ttl:          how long an entry lives after it was loaded.
+ * */
+@Builder(toBuilder = true)
+public record CacheSettings(boolean enabled, long maximumSize, Duration ttl) {
+
+    public CacheSettings {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+        }
+    }
+
+    public static CacheSettings defaults() {
+        return CacheSettings.builder()
+                .enabled(true)
+                .maximumSize(10_000)
+                .ttl(Duration.ofMinutes(5))
+                .build();
+    }
+}
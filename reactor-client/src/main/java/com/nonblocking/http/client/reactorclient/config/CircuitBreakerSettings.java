@@ -0,0 +1,49 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/* *
+ * Circuit breaker per endpoint of ExternalServiceClient.
+ *  - enabled:                 when false every call is let through.
+ *  - windowSize:              number of most recent calls the error and slow-call rates are computed from.
+ *  - minimumCalls:            calls needed in the window before the breaker may trip.
+ *  - failureRateThreshold:    percentage of failed calls that opens the circuit. 400 Bad Request does not count as a failure.
+ *  - slowCallDuration:        calls slower than this count as slow.
+ *  - slowCallRateThreshold:   percentage of slow calls that opens the circuit.
+ *  - openDuration:            how long the circuit stays open before probes are let through.
+ *  - halfOpenProbes:          calls let through while half-open. All must succeed to close the circuit again, one failure re-opens it.
+ * */
+@Builder(toBuilder = true)
+public record CircuitBreakerSettings(boolean enabled,
+                                     int windowSize,
+                                     int minimumCalls,
+                                     double failureRateThreshold,
+                                     Duration slowCallDuration,
+                                     double slowCallRateThreshold,
+                                     Duration openDuration,
+                                     int halfOpenProbes) {
+
+    public CircuitBreakerSettings {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("minimumCalls must be between 1 and windowSize: " + minimumCalls + "/" + windowSize);
+        }
+        if (halfOpenProbes < 1) {
+            throw new IllegalArgumentException("halfOpenProbes must be positive: " + halfOpenProbes);
+        }
+    }
+
+    public static CircuitBreakerSettings defaults() {
+        return CircuitBreakerSettings.builder()
+                .enabled(true)
+                .windowSize(20)
+                .minimumCalls(10)
+                .failureRateThreshold(50)
+                .slowCallDuration(Duration.ofSeconds(3))
+                .slowCallRateThreshold(80)
+                .openDuration(Duration.ofSeconds(5))
+                .halfOpenProbes(3)
+                .build();
+    }
+}
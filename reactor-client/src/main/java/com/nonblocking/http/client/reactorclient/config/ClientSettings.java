@@ -0,0 +1,61 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/* *
+ * Everything AbstractHttpClient needs to build its HttpClient. Start from defaults() and override what you need:
+ *
+ *      ClientSettings.defaults().toBuilder()
+ *              .pool(PoolSettings.defaults().toBuilder().maxConnections(50).build())
+ *              .build();
+ *
+ * baseUrl is the single replica of the external service. To spread the load over several, list them in LoadBalancerSettings.replicas.
+ * */
+@Builder(toBuilder = true)
+public record ClientSettings(String baseUrl,
+                             PoolSettings pool,
+                             LoopSettings loop,
+                             CacheSettings cache,
+                             NegativeCacheSettings negativeCache,
+                             DiskCacheSettings diskCache,
+                             HedgeSettings hedge,
+                             CircuitBreakerSettings circuitBreaker,
+                             ConcurrencyLimitSettings concurrencyLimit,
+                             RetrySettings retry,
+                             StreamSettings stream,
+                             WarmupSettings warmup,
+                             LoadBalancerSettings loadBalancer,
+                             MulticastSettings multicast,
+                             BulkheadSettings bulkhead,
+                             FallbackSettings fallback,
+                             TimeoutSettings timeout) {
+
+    public static ClientSettings defaults() {
+        return ClientSettings.builder()
+                .baseUrl("http://localhost:7070")
+                .pool(PoolSettings.defaults())
+                .loop(LoopSettings.defaults())
+                .cache(CacheSettings.defaults())
+                .negativeCache(NegativeCacheSettings.defaults())
+                .diskCache(DiskCacheSettings.defaults())
+                .hedge(HedgeSettings.defaults())
+                .circuitBreaker(CircuitBreakerSettings.defaults())
+                .concurrencyLimit(ConcurrencyLimitSettings.defaults())
+                .retry(RetrySettings.defaults())
+                .stream(StreamSettings.defaults())
+                .warmup(WarmupSettings.defaults())
+                .loadBalancer(LoadBalancerSettings.defaults())
+                .multicast(MulticastSettings.defaults())
+                .bulkhead(BulkheadSettings.defaults())
+                .fallback(FallbackSettings.defaults())
+                .timeout(TimeoutSettings.defaults())
+                .build();
+    }
+
+    // the replicas requests are balanced over: the configured ones, or else just baseUrl
+    public List<String> baseUrls() {
+        return loadBalancer.replicas().isEmpty() ? List.of(baseUrl) : loadBalancer.replicas();
+    }
+}
@@ -0,0 +1,58 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/* *
+ * Adaptive concurrency limit per endpoint of ExternalServiceClient.
+ *  - enabled:        when false every call is let through, as many as the callers' flatMap concurrency allows.
+ *  - initialLimit:   requests allowed in flight before any latency has been measured.
+ *  - minLimit:       the limit never drops below this.
+ *  - maxLimit:       the limit never grows beyond this.
+ *  - tolerance:      how much slower than the long-term average round trip a request may be before the limit shrinks, e.g. 1.5.
+ *  - smoothing:      weight of every new estimate in the limit, between 0 (never moves) and 1 (follows every sample).
+ *  - backoffRatio:   the limit is multiplied by it when a request times out or fails with a server or connect error.
+ *  - maxQueue:       requests waiting for a permit when the limit is reached, the ones beyond are rejected right away. 0 never queues.
+ *  - maxWait:        how long a request waits for a permit before it is rejected.
+ * */
+@Builder(toBuilder = true)
+public record ConcurrencyLimitSettings(boolean enabled,
+                                       int initialLimit,
+                                       int minLimit,
+                                       int maxLimit,
+                                       double tolerance,
+                                       double smoothing,
+                                       double backoffRatio,
+                                       int maxQueue,
+                                       Duration maxWait) {
+
+    public ConcurrencyLimitSettings {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit: " + minLimit + "/" + initialLimit + "/" + maxLimit);
+        }
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("tolerance must be at least 1: " + tolerance);
+        }
+        if (smoothing <= 0 || smoothing > 1 || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("smoothing must be in (0, 1] and backoffRatio in (0, 1): " + smoothing + "/" + backoffRatio);
+        }
+        if (maxQueue < 0) {
+            throw new IllegalArgumentException("maxQueue must not be negative: " + maxQueue);
+        }
+    }
+
+    public static ConcurrencyLimitSettings defaults() {
+        return ConcurrencyLimitSettings.builder()
+                .enabled(false)
+                .initialLimit(20)
+                .minLimit(4)
+                .maxLimit(200)
+                .tolerance(1.5)
+                .smoothing(0.2)
+                .backoffRatio(0.9)
+                .maxQueue(100)
+                .maxWait(Duration.ofSeconds(1))
+                .build();
+    }
+}
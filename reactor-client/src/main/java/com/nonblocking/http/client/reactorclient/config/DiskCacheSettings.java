@@ -0,0 +1,37 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/* *
+ * Second-level cache of the product name lookups on local disk, kept across restarts (see DiskCache).
+ *  - enabled:        off unless switched on. Every client needs a directory of its own.
+ *  - directory:      where the segment files live, created when missing.
+ *  - segmentBytes:   size of one memory-mapped segment file. Responses larger than a segment are not cached.
+ *  - maxDiskBytes:   the segments never take more than this together, the least recently read one is deleted first.
+ *  - ttl:            how long a response is served from disk after it was written, restarts included.
+ * */
+@Builder(toBuilder = true)
+public record DiskCacheSettings(boolean enabled, Path directory, int segmentBytes, long maxDiskBytes, Duration ttl) {
+
+    public DiskCacheSettings {
+        if (segmentBytes < 4096) {
+            throw new IllegalArgumentException("segmentBytes must be at least 4096: " + segmentBytes);
+        }
+        if (maxDiskBytes < 2L * segmentBytes) {
+            throw new IllegalArgumentException("maxDiskBytes must hold at least two segments: " + maxDiskBytes + " < 2 * " + segmentBytes);
+        }
+    }
+
+    public static DiskCacheSettings defaults() {
+        return DiskCacheSettings.builder()
+                .enabled(false)
+                .directory(Path.of(System.getProperty("java.io.tmpdir"), "external-service-cache"))
+                .segmentBytes(4 * 1024 * 1024)
+                .maxDiskBytes(64L * 1024 * 1024)
+                .ttl(Duration.ofHours(1))
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/* *
+ * Fallback racing of the demo03 product lookup (see FallbackRace).
+ *  - delay:  how long the primary has on its own before the timeout fallback is started next to it.
+ *            Well below the timeout the fallback used to wait for, it is what a slow primary adds to a call.
+ * */
+@Builder(toBuilder = true)
+public record FallbackSettings(Duration delay) {
+
+    public FallbackSettings {
+        if (delay.isNegative()) {
+            throw new IllegalArgumentException("delay must not be negative: " + delay);
+        }
+    }
+
+    public static FallbackSettings defaults() {
+        return FallbackSettings.builder()
+                .delay(Duration.ofMillis(300))
+                .build();
+    }
+}
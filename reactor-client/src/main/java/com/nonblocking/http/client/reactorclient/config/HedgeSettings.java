@@ -0,0 +1,39 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/* *
+ * Opt-in hedging of the slow demo05 lookups: when no response arrived after a delay, an identical second request is sent,
+ * the first response wins and the other request is cancelled.
+ *  - enabled:        hedging is off unless switched on.
+ *  - delay:          hedge delay until enough latencies were observed (or always, when percentile is 0).
+ *  - percentile:     the hedge delay tracks this percentile of the observed latencies, e.g. 0.95.
+ *  - minDelay:       lower bound of the tracked delay, so hedges never fire right away.
+ *  - minSamples:     observed latencies needed before the percentile is trusted.
+ *  - budgetPercent:  hedges never exceed this percentage of the hedged calls.
+ * */
+@Builder(toBuilder = true)
+public record HedgeSettings(boolean enabled, Duration delay, double percentile, Duration minDelay, int minSamples, double budgetPercent) {
+
+    public HedgeSettings {
+        if (percentile < 0 || percentile >= 1) {
+            throw new IllegalArgumentException("percentile must be in [0, 1): " + percentile);
+        }
+        if (budgetPercent < 0 || budgetPercent > 100) {
+            throw new IllegalArgumentException("budgetPercent must be between 0 and 100: " + budgetPercent);
+        }
+    }
+
+    public static HedgeSettings defaults() {
+        return HedgeSettings.builder()
+                .enabled(false)
+                .delay(Duration.ofMillis(1200))
+                .percentile(0.95)
+                .minDelay(Duration.ofMillis(50))
+                .minSamples(20)
+                .budgetPercent(10)
+                .build();
+    }
+}
@@ -0,0 +1,36 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+import java.util.List;
+
+/* *
+ * Client-side load balancing over replicas of the external service (see LoadBalancer).
+ *  - replicas:              base URLs of the replicas, e.g. "http://host-a:7070". When empty, ClientSettings.baseUrl is the only one.
+ *  - consecutiveFailures:   server errors or connect failures in a row that eject a replica. 400 Bad Request does not count.
+ *  - ejectionTime:          how long an ejected replica gets no traffic. It is re-admitted by time, no probe is involved.
+ *  - slowStart:             time over which a re-admitted replica ramps up from a tenth to its full share of the traffic.
+ * */
+@Builder(toBuilder = true)
+public record LoadBalancerSettings(List<String> replicas,
+                                   int consecutiveFailures,
+                                   Duration ejectionTime,
+                                   Duration slowStart) {
+
+    public LoadBalancerSettings {
+        replicas = List.copyOf(replicas);
+        if (consecutiveFailures < 1) {
+            throw new IllegalArgumentException("consecutiveFailures must be positive: " + consecutiveFailures);
+        }
+    }
+
+    public static LoadBalancerSettings defaults() {
+        return LoadBalancerSettings.builder()
+                .replicas(List.of())
+                .consecutiveFailures(5)
+                .ejectionTime(Duration.ofSeconds(10))
+                .slowStart(Duration.ofSeconds(10))
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+import reactor.netty.resources.LoopResources;
+
+/* *
+ * Event loops used by AbstractHttpClient.
+ *  - threadPrefix:  name prefix of the selector threads.
+ *  - workerCount:   number of event loop threads. Defaults to the available cores, so calls are not all multiplexed onto one selector thread.
+ *  - daemon:        whether the threads keep the JVM alive.
+ *  - preferNative:  use the native epoll transport when it is on the classpath (Linux), otherwise fall back to NIO.
+ * */
+@Builder(toBuilder = true)
+public record LoopSettings(String threadPrefix, int workerCount, boolean daemon, boolean preferNative) {
+
+    public LoopSettings {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be positive: " + workerCount);
+        }
+    }
+
+    public static LoopSettings defaults() {
+        return LoopSettings.builder()
+                .threadPrefix("ssamantr-thread")
+                .workerCount(Runtime.getRuntime().availableProcessors())
+                .daemon(true)
+                .preferNative(true)
+                .build();
+    }
+
+    public LoopResources toLoopResources() {
+        return LoopResources.create(threadPrefix, workerCount, daemon);
+    }
+}
@@ -0,0 +1,36 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/* *
+ * Default subscriber settings of a MulticastHub, a subscriber can choose its own.
+ *  - bufferSize:  elements buffered for a subscriber that does not keep up, before the overflow policy applies.
+ *  - overflow:    what happens to a full buffer: DROP_OLDEST makes room for the new element, DROP_LATEST drops the new element,
+ *                 ERROR fails that subscriber's stream. Either way the other subscribers are not affected.
+ *  - linger:      how long the upstream connection stays open after the last subscriber left, so a quick resubscribe reuses it.
+ * */
+@Builder(toBuilder = true)
+public record MulticastSettings(int bufferSize, Overflow overflow, Duration linger) {
+
+    public enum Overflow {
+        DROP_OLDEST,
+        DROP_LATEST,
+        ERROR
+    }
+
+    public MulticastSettings {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+    }
+
+    public static MulticastSettings defaults() {
+        return MulticastSettings.builder()
+                .bufferSize(256)
+                .overflow(Overflow.DROP_OLDEST)
+                .linger(Duration.ofSeconds(1))
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/* *
+ * Cache of the lookups that found nothing: empty answers and 400 Bad Request (see NegativeCache).
+ *  - enabled:      when false a known miss goes over the wire again.
+ *  - maximumSize:  entries kept per cache, separate from CacheSettings.maximumSize so unknown ids cannot push names out.
+ *  - ttl:          how long a miss is remembered. Short, an id may become known any time.
+ * */
+@Builder(toBuilder = true)
+public record NegativeCacheSettings(boolean enabled, long maximumSize, Duration ttl) {
+
+    public NegativeCacheSettings {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+        }
+    }
+
+    public static NegativeCacheSettings defaults() {
+        return NegativeCacheSettings.builder()
+                .enabled(true)
+                .maximumSize(1_000)
+                .ttl(Duration.ofSeconds(30))
+                .build();
+    }
+}
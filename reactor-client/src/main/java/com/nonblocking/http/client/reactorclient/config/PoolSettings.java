@@ -0,0 +1,69 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/* *
+ * Connection pool used by AbstractHttpClient.
+ *  - maxConnections:          connections per remote address.
+ *  - pendingAcquireMaxCount:  requests allowed to wait for a connection once all are in use. -1 means unbounded.
+ *  - pendingAcquireTimeout:   how long a request waits for a connection before failing.
+ *  - maxIdleTime:             idle connections older than this are closed.
+ *  - maxLifeTime:             connections older than this are closed once released.
+ *  - evictInBackground:       interval of the background eviction of idle/expired connections. Zero disables it.
+ *  - leasingStrategy:         FIFO spreads load over all connections, LIFO keeps the hottest connections busy and lets the rest idle out.
+ *  - metrics:                 publishes the reactor.netty.connection.provider.* gauges (active, idle, pending, total connections)
+ *                             tagged with the remote address to Micrometer's global registry.
+ * */
+@Builder(toBuilder = true)
+public record PoolSettings(String name,
+                           int maxConnections,
+                           int pendingAcquireMaxCount,
+                           Duration pendingAcquireTimeout,
+                           Duration maxIdleTime,
+                           Duration maxLifeTime,
+                           Duration evictInBackground,
+                           LeasingStrategy leasingStrategy,
+                           boolean metrics) {
+
+    public enum LeasingStrategy {
+        FIFO, LIFO
+    }
+
+    public PoolSettings {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be positive: " + maxConnections);
+        }
+        if (pendingAcquireMaxCount < -1 || pendingAcquireMaxCount == 0) {
+            throw new IllegalArgumentException("pendingAcquireMaxCount must be positive or -1: " + pendingAcquireMaxCount);
+        }
+    }
+
+    public static PoolSettings defaults() {
+        return PoolSettings.builder()
+                .name("external-service")
+                .maxConnections(ConnectionProvider.DEFAULT_POOL_MAX_CONNECTIONS)
+                .pendingAcquireMaxCount(2 * ConnectionProvider.DEFAULT_POOL_MAX_CONNECTIONS)
+                .pendingAcquireTimeout(Duration.ofMillis(ConnectionProvider.DEFAULT_POOL_ACQUIRE_TIMEOUT))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .maxLifeTime(Duration.ofMinutes(5))
+                .evictInBackground(Duration.ofSeconds(30))
+                .leasingStrategy(LeasingStrategy.FIFO)
+                .metrics(true)
+                .build();
+    }
+
+    public ConnectionProvider toConnectionProvider() {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInBackground)
+                .metrics(metrics);
+        return leasingStrategy == LeasingStrategy.LIFO ? builder.lifo().build() : builder.fifo().build();
+    }
+}
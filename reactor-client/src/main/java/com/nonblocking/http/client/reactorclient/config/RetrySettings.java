@@ -0,0 +1,27 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/* *
+ * Client-wide retry budget and backoff used by ExternalServiceClient.retry().
+ *  - tokensPerSuccess:  fraction of a retry earned by every successful exchange, e.g. 0.1 lets retries reach 10% of the successful traffic.
+ *  - maxTokens:         retries that can be saved up, which is also the initial allowance.
+ *  - maxAttempts:       retries of a single call.
+ *  - baseBackoff:       shortest delay before a retry.
+ *  - maxBackoff:        longest delay before a retry. Delays in between follow decorrelated jitter.
+ * */
+@Builder(toBuilder = true)
+public record RetrySettings(double tokensPerSuccess, double maxTokens, int maxAttempts, Duration baseBackoff, Duration maxBackoff) {
+
+    public static RetrySettings defaults() {
+        return RetrySettings.builder()
+                .tokensPerSuccess(0.1)
+                .maxTokens(10)
+                .maxAttempts(3)
+                .baseBackoff(Duration.ofMillis(100))
+                .maxBackoff(Duration.ofSeconds(2))
+                .build();
+    }
+}
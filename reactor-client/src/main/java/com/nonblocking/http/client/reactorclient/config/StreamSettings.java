@@ -0,0 +1,49 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/* *
+ * Streaming endpoints of ExternalServiceClient.
+ *  - delimiter:              ends every element of a stream, "\n" by default. Empty means one element per chunk, opt-in for a
+ *                            stream that sends its elements undelimited: HTTP/1.1 does not keep chunk boundaries intact, a chunk that
+ *                            spans TCP reads or exceeds Netty's maxChunkSize arrives in pieces, each taken for an element of its own.
+ *  - maxFrameLength:         longest message (name, order) accepted in a stream. A longer one fails the stream instead of buffering without bound.
+ *  - maxReconnects:          reconnects of a stream allowed within the reconnect window after its connection dropped. 0 lets a drop fail the stream.
+ *  - reconnectWindow:        the window maxReconnects applies to. Once it is used up the stream fails with the error of the last drop.
+ *  - reconnectBaseBackoff:   delay ceiling of the first reconnect. It doubles with every failed reconnect in a row, and the actual
+ *                            delay is random below the ceiling, so clients that lost the same replica do not come back all at once.
+ *  - reconnectMaxBackoff:    highest delay ceiling.
+ * */
+@Builder(toBuilder = true)
+public record StreamSettings(String delimiter,
+                             int maxFrameLength,
+                             int maxReconnects,
+                             Duration reconnectWindow,
+                             Duration reconnectBaseBackoff,
+                             Duration reconnectMaxBackoff) {
+
+    public StreamSettings {
+        if (delimiter.length() > 1) {
+            throw new IllegalArgumentException("delimiter must be a single character or empty: " + delimiter);
+        }
+        if (maxFrameLength < 1) {
+            throw new IllegalArgumentException("maxFrameLength must be positive: " + maxFrameLength);
+        }
+        if (maxReconnects < 0) {
+            throw new IllegalArgumentException("maxReconnects must not be negative: " + maxReconnects);
+        }
+    }
+
+    public static StreamSettings defaults() {
+        return StreamSettings.builder()
+                .delimiter("\n")
+                .maxFrameLength(8 * 1024)
+                .maxReconnects(10)
+                .reconnectWindow(Duration.ofMinutes(1))
+                .reconnectBaseBackoff(Duration.ofMillis(100))
+                .reconnectMaxBackoff(Duration.ofSeconds(10))
+                .build();
+    }
+}
@@ -0,0 +1,52 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/* *
+ * Adaptive timeout per request/response endpoint of ExternalServiceClient (see AdaptiveTimeout).
+ *  - enabled:      when false a request waits as long as the connection does.
+ *  - initial:      timeout until minSamples latencies were observed.
+ *  - quantile:     the timeout tracks this quantile of the observed latencies, e.g. 0.99.
+ *  - multiplier:   the tracked quantile is multiplied by it, the headroom a slow but healthy response gets.
+ *  - floor:        the timeout never drops below this, however fast the endpoint answers.
+ *  - ceiling:      the timeout never grows beyond this, however slow the endpoint gets.
+ *  - minSamples:   observed latencies needed before the quantile is trusted.
+ * */
+@Builder(toBuilder = true)
+public record TimeoutSettings(boolean enabled,
+                              Duration initial,
+                              double quantile,
+                              double multiplier,
+                              Duration floor,
+                              Duration ceiling,
+                              int minSamples) {
+
+    public TimeoutSettings {
+        if (quantile <= 0 || quantile >= 1) {
+            throw new IllegalArgumentException("quantile must be in (0, 1): " + quantile);
+        }
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("multiplier must be at least 1: " + multiplier);
+        }
+        if (floor.isNegative() || floor.isZero() || floor.compareTo(initial) > 0 || initial.compareTo(ceiling) > 0) {
+            throw new IllegalArgumentException("timeouts must satisfy 0 < floor <= initial <= ceiling: " + floor + "/" + initial + "/" + ceiling);
+        }
+        if (minSamples < 1) {
+            throw new IllegalArgumentException("minSamples must be at least 1: " + minSamples);
+        }
+    }
+
+    public static TimeoutSettings defaults() {
+        return TimeoutSettings.builder()
+                .enabled(false)
+                .initial(Duration.ofSeconds(5))
+                .quantile(0.99)
+                .multiplier(2)
+                .floor(Duration.ofMillis(200))
+                .ceiling(Duration.ofSeconds(10))
+                .minSamples(50)
+                .build();
+    }
+}
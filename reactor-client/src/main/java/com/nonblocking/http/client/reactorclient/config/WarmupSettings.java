@@ -0,0 +1,39 @@
+package com.nonblocking.http.client.reactorclient.config;
+
+import lombok.Builder;
+
+import java.time.Duration;
+import java.util.List;
+
+/* *
+ * Warmup phase of AbstractHttpClient, so the first real requests after startup do not pay for it.
+ *  - enabled:      when true the client warms up in its constructor, blocking it for at most the timeout. A client created
+ *                  on a non-blocking thread (an event loop, Schedulers.parallel()) is not blocked, its warmup runs in the
+ *                  background. AbstractHttpClient.warmup() can be called explicitly either way.
+ *  - connections:  pooled connections opened to every replica up front, at most PoolSettings.maxConnections.
+ *  - routes:       paths synthetic GET requests are sent to once the connections are open, on every replica, e.g. "/demo01/product/1".
+ *                  Warms the request and response paths of the client and the caches of the service. Their responses are dropped.
+ *  - timeout:      a warmup that takes longer is given up. A failed warmup is logged, it never fails the client.
+ * */
+@Builder(toBuilder = true)
+public record WarmupSettings(boolean enabled,
+                             int connections,
+                             List<String> routes,
+                             Duration timeout) {
+
+    public WarmupSettings {
+        routes = List.copyOf(routes);
+        if (connections < 0) {
+            throw new IllegalArgumentException("connections must not be negative: " + connections);
+        }
+    }
+
+    public static WarmupSettings defaults() {
+        return WarmupSettings.builder()
+                .enabled(false)
+                .connections(4)
+                .routes(List.of())
+                .timeout(Duration.ofSeconds(10))
+                .build();
+    }
+}
@@ -0,0 +1,8 @@
+package com.nonblocking.http.client.reactorclient.exception;
+
+public class BulkheadFullError extends RuntimeException {
+
+    public BulkheadFullError(String group) {
+        super("Bulkhead full for " + group);
+    }
+}
@@ -0,0 +1,8 @@
+package com.nonblocking.http.client.reactorclient.exception;
+
+public class CircuitOpenError extends RuntimeException {
+
+    public CircuitOpenError(String endpoint) {
+        super("Circuit open for " + endpoint);
+    }
+}
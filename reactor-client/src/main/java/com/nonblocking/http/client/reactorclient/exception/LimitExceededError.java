@@ -0,0 +1,8 @@
+package com.nonblocking.http.client.reactorclient.exception;
+
+public class LimitExceededError extends RuntimeException {
+
+    public LimitExceededError(String endpoint) {
+        super("Concurrency limit exceeded for " + endpoint);
+    }
+}
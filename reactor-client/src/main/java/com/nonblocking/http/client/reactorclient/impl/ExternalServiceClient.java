@@ -1,71 +1,258 @@
 package com.nonblocking.http.client.reactorclient.impl;
 
 import com.nonblocking.http.client.assignment.context.RateLimiter;
+import com.nonblocking.http.client.assignment.hotandcoldpublisher.Order;
 import com.nonblocking.http.client.assignment.context.UserService;
 import com.nonblocking.http.client.reactorclient.AbstractHttpClient;
+import com.nonblocking.http.client.reactorclient.cache.AsyncMonoCache;
+import com.nonblocking.http.client.reactorclient.cache.DiskCache;
+import com.nonblocking.http.client.reactorclient.cache.NegativeCache;
+import com.nonblocking.http.client.reactorclient.codec.AsciiIntDecoder;
+import com.nonblocking.http.client.reactorclient.codec.DelimitedFrameDecoder;
+import com.nonblocking.http.client.reactorclient.codec.FrameParser;
+import com.nonblocking.http.client.reactorclient.codec.OrderParser;
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.config.StreamSettings;
 import com.nonblocking.http.client.reactorclient.exception.ClientError;
 import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import com.nonblocking.http.client.reactorclient.metrics.ClientMetrics;
+import com.nonblocking.http.client.reactorclient.metrics.ExchangeMetrics;
+import com.nonblocking.http.client.reactorclient.model.ProductAggregate;
+import com.nonblocking.http.client.reactorclient.multicast.MulticastHub;
+import com.nonblocking.http.client.reactorclient.resilience.AdaptiveTimeout;
+import com.nonblocking.http.client.reactorclient.resilience.AdaptiveTimeouts;
+import com.nonblocking.http.client.reactorclient.resilience.Bulkhead;
+import com.nonblocking.http.client.reactorclient.resilience.CircuitBreaker;
+import com.nonblocking.http.client.reactorclient.resilience.CircuitBreakers;
+import com.nonblocking.http.client.reactorclient.resilience.ConcurrencyLimiter;
+import com.nonblocking.http.client.reactorclient.resilience.ConcurrencyLimiters;
+import com.nonblocking.http.client.reactorclient.resilience.FallbackRace;
+import com.nonblocking.http.client.reactorclient.resilience.Hedger;
+import com.nonblocking.http.client.reactorclient.resilience.Reconnector;
+import com.nonblocking.http.client.reactorclient.resilience.RetryBudget;
+import com.nonblocking.http.client.reactorclient.resilience.TokenBudget;
+import io.netty.buffer.ByteBuf;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
 import reactor.netty.http.client.HttpClientResponse;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Function;
 
 @Slf4j
 @Component
 public class ExternalServiceClient extends AbstractHttpClient {
 
+    private static final FrameParser<String> STRING = (buffer, index, length) -> buffer.toString(index, length, StandardCharsets.UTF_8);
+
+    // product names rarely change, so they are cached (see CacheSettings). Concurrent lookups of the same product id share one
+    // HTTP exchange, which is cancelled once all of them cancelled (see AsyncMonoCache)
+    private final AsyncMonoCache<Integer, String> productNameCache;
+    private final AsyncMonoCache<Integer, String> demo03ProductNameCache;
+
+    // opt-in second level behind both name caches, on disk and kept across restarts (see DiskCacheSettings)
+    private final DiskCache productNameDiskCache;
+
+    // ids the lookups found nothing for, empty or 400, are not requested again for a while (see NegativeCacheSettings)
+    private final NegativeCache<Integer> productNameMisses;
+    private final NegativeCache<Integer> demo03ProductNameMisses;
+    private final NegativeCache<Integer> demo06ProductNameMisses;
+
+    // opt-in hedging of the slow demo05 lookups, all three share one hedge budget (see HedgeSettings)
+    private final Hedger demo05PriceHedger;
+    private final Hedger demo05ProductHedger;
+    private final Hedger demo05ReviewHedger;
+
+    // every request/response endpoint has its own circuit breaker, applied per HTTP exchange (see CircuitBreakerSettings)
+    private final CircuitBreakers circuitBreakers;
+
+    // adaptive limit on the requests in flight per request/response endpoint, opt-in (see ConcurrencyLimitSettings)
+    private final ConcurrencyLimiters concurrencyLimiters;
+
+    // opt-in timeout per request/response endpoint that follows its observed latency (see TimeoutSettings)
+    private final AdaptiveTimeouts timeouts;
+
+    // the timeout fallback of the demo03 product lookup is raced against it instead of waiting for a timeout (see FallbackSettings)
+    private final FallbackRace demo03FallbackRace;
+
+    // one retry budget for the whole client, funded by successful exchanges (see RetrySettings)
+    private final RetryBudget retryBudget;
+
+    // streams are requested again when their connection drops (see StreamSettings)
+    private final Reconnector nameStreamReconnector;
+    private final Reconnector stockStreamReconnector;
+    private final Reconnector ordersStreamReconnector;
+
+    // one orders stream connection shared by all in-process order processors (see MulticastSettings)
+    private final MulticastHub<Order> demo04OrdersHub;
+
+    // latency histograms and outcome counters of every endpoint, request/response and streaming
+    private final ClientMetrics clientMetrics = new ClientMetrics();
+
+    public ExternalServiceClient() {
+        this(ClientSettings.defaults());
+    }
+
+    public ExternalServiceClient(ClientSettings settings) {
+        super(settings);
+        this.productNameCache = new AsyncMonoCache<>("demo01.product", settings.cache());
+        this.demo03ProductNameCache = new AsyncMonoCache<>("demo03.product", settings.cache());
+        this.productNameDiskCache = new DiskCache("product-names", settings.diskCache());
+        this.productNameMisses = new NegativeCache<>("demo01.product", settings.negativeCache());
+        this.demo03ProductNameMisses = new NegativeCache<>("demo03.product", settings.negativeCache());
+        this.demo06ProductNameMisses = new NegativeCache<>("demo06.product", settings.negativeCache());
+        TokenBudget hedgeBudget = new TokenBudget(settings.hedge().budgetPercent() / 100, 10, 0);
+        this.demo05PriceHedger = new Hedger("demo05.price", settings.hedge(), hedgeBudget);
+        this.demo05ProductHedger = new Hedger("demo05.product", settings.hedge(), hedgeBudget);
+        this.demo05ReviewHedger = new Hedger("demo05.review", settings.hedge(), hedgeBudget);
+        this.circuitBreakers = new CircuitBreakers(settings.circuitBreaker());
+        this.concurrencyLimiters = new ConcurrencyLimiters(settings.concurrencyLimit());
+        this.timeouts = new AdaptiveTimeouts(settings.timeout());
+        this.retryBudget = new RetryBudget(settings.retry());
+        this.demo03FallbackRace = new FallbackRace("demo03.product", settings.fallback());
+        this.nameStreamReconnector = new Reconnector("demo02.name", settings.stream());
+        this.stockStreamReconnector = new Reconnector("demo02.stock", settings.stream());
+        this.ordersStreamReconnector = new Reconnector("demo04.orders", settings.stream());
+        this.demo04OrdersHub = new MulticastHub<>("demo04.orders", getDemo04Orders(), settings.multicast());
+    }
+
+    public AsyncMonoCache<Integer, String> productNameCache() {
+        return productNameCache;
+    }
+
+    public AsyncMonoCache<Integer, String> demo03ProductNameCache() {
+        return demo03ProductNameCache;
+    }
+
+    public DiskCache productNameDiskCache() {
+        return productNameDiskCache;
+    }
+
+    public NegativeCache<Integer> negativeCache(String endpoint) {
+        return switch (endpoint) {
+            case "demo01.product" -> productNameMisses;
+            case "demo03.product" -> demo03ProductNameMisses;
+            case "demo06.product" -> demo06ProductNameMisses;
+            default -> throw new IllegalArgumentException("no negative cache for " + endpoint);
+        };
+    }
+
+    public CircuitBreaker circuitBreaker(String endpoint) {
+        return circuitBreakers.forEndpoint(endpoint);
+    }
+
+    public ConcurrencyLimiter concurrencyLimiter(String endpoint) {
+        return concurrencyLimiters.forEndpoint(endpoint);
+    }
+
+    public AdaptiveTimeout timeout(String endpoint) {
+        return timeouts.forEndpoint(endpoint);
+    }
+
+    public RetryBudget retryBudget() {
+        return retryBudget;
+    }
+
+    public Reconnector reconnector(String endpoint) {
+        return switch (endpoint) {
+            case "demo02.name" -> nameStreamReconnector;
+            case "demo02.stock" -> stockStreamReconnector;
+            case "demo04.orders" -> ordersStreamReconnector;
+            default -> throw new IllegalArgumentException("not a stream: " + endpoint);
+        };
+    }
+
+    public MulticastHub<Order> demo04OrdersHub() {
+        return demo04OrdersHub;
+    }
+
+    public ClientMetrics metrics() {
+        return clientMetrics;
+    }
+
+    /* *
+     * Retries on server errors within the client-wide retry budget, with jittered exponential backoff.
+     * 400 Bad Request is never retried:
+     *
+     *      client.getProductNameForRetry(2).retryWhen(client.retry())
+     * */
+    public Retry retry() {
+        return retryBudget.retry();
+    }
+
     /* *
      * Product Service:
      * GET http://localhost:7070/demo01/product/{productId}
      * Provides the product name for the given product id (up to product id 100)
      * */
     public Mono<String> getProductName(int productId) {
-        return this.httpClient.get()
-                .uri("/demo01/product/" + productId)
-                .responseContent()
-                .asString()
-                .next();
+        String path = "/demo01/product/" + productId;
+        return productNameMisses.get(productId, () -> productNameCache.get(productId, () -> productNameDiskCache.get(path, () ->
+                exchange("demo01.product", client -> client.get()
+                        .uri(path)
+                        .response(this::toResponse)
+                        .next()))));
     }
 
     /* *
      * Streaming Service:
      * GET http://localhost:7070/demo02/name/stream
-     * Generates random first names every 500 ms!
+     * Generates random first names every 500 ms! One name per line (see StreamSettings.delimiter).
+     * A dropped connection is reconnected within the limits of StreamSettings, the subscriber sees one stream (see Reconnector).
      * */
     public Flux<String> getNameStream() {
-        return this.httpClient.get()
+        return nameStreamReconnector.reconnecting(() -> loadBalancer.stream(client -> client.get()
                 .uri("/demo02/name/stream")
-                .responseContent()
-                .asString();
+                .response(this::toStream))
+                .transform(frames(STRING))
+                .transform(stream("demo02.name")));
     }
 
     /* *
      * Assignment: Stock Service:
      * GET http://localhost:7070/demo02/stock/stream
      * Sends stock price to the observer periodically! The stock price can be between 80 - 120. This service will emit price changes every 500ms for ~20 seconds.
+     * One price per line (see StreamSettings.delimiter).
      * */
     public Flux<Integer> getStockPrices() {
-        return this.httpClient.get()
+        return stockStreamReconnector.reconnecting(() -> loadBalancer.stream(client -> client.get()
                 .uri("/demo02/stock/stream")
-                .responseContent()
-                .asString()
-                .map(Integer::valueOf);
+                .response(this::toStream))
+                .transform(chunks -> AsciiIntDecoder.decode(chunks, settings.stream().delimiter().isEmpty())) // straight from the buffers
+                .transform(stream("demo02.stock")));
     }
 
     /* *
      * Product Service:
      * GET http://localhost:7070/demo03/product/{productId}
      * Provides the product name for the given product id (1,2,3,4)
+     * Other ids answer empty, which is remembered for a while (see NegativeCache).
      * */
     public Mono<String> getDemo03ProductName(int productId) {
-        return this.httpClient.get()
-                .uri("/demo03/product/" + productId)
-                .responseContent()
-                .asString()
-                .next();
+        String path = "/demo03/product/" + productId;
+        return demo03ProductNameMisses.get(productId, () -> demo03ProductNameCache.get(productId, () -> productNameDiskCache.get(path, () ->
+                exchange("demo03.product", client -> client.get()
+                        .uri(path)
+                        .response(this::toResponse)
+                        .next()))));
+    }
+
+    /* *
+     * Product name with both fallbacks:
+     * The timeout fallback is started when the product service has not answered after FallbackSettings.delay, the first name
+     * wins and the other request is cancelled. An empty answer of the product service goes to the empty fallback right away.
+     * */
+    public Mono<String> getDemo03ProductNameWithFallback(int productId) {
+        return demo03FallbackRace.race(getDemo03ProductName(productId),
+                getDemo03TimeoutFallbackProductName(productId),
+                getDemo03EmptyFallbackProductName(productId));
     }
 
     /* *
@@ -74,11 +261,10 @@ public class ExternalServiceClient extends AbstractHttpClient {
      * Provides the product name for the given product id (1,2,3,4)
      * */
     public Mono<String> getDemo03EmptyFallbackProductName(int productId) {
-        return this.httpClient.get()
+        return exchange("demo03.empty-fallback", client -> client.get()
                 .uri("/demo03/empty-fallback/product/" + productId)
-                .responseContent()
-                .asString()
-                .next();
+                .response(this::toResponse)
+                .next());
     }
 
     /* *
@@ -87,23 +273,44 @@ public class ExternalServiceClient extends AbstractHttpClient {
      * Provides the product name for the given product id (1,2,3,4)
      * */
     public Mono<String> getDemo03TimeoutFallbackProductName(int productId) {
-        return this.httpClient.get()
+        return exchange("demo03.timeout-fallback", client -> client.get()
                 .uri("/demo03/timeout-fallback/product/" + productId)
-                .responseContent()
-                .asString()
-                .next();
+                .response(this::toResponse)
+                .next());
     }
 
     /* *
      * Orders Stream
      * GET http://localhost:7070/demo04/orders/stream
-     * Provides stream of orders
+     * Provides stream of orders, one "item:category:price:quantity" message per line (see StreamSettings.delimiter).
      * */
     public Flux<String> getDemo04OrdersStream() {
-        return this.httpClient.get()
+        return ordersStreamReconnector.reconnecting(() -> loadBalancer.stream(client -> client.get()
+                .uri("/demo04/orders/stream")
+                .response(this::toStream))
+                .transform(frames(STRING))
+                .transform(stream("demo04.orders")));
+    }
+
+    /* *
+     * Orders Stream, decoded:
+     * Same stream as above, but every message is parsed straight from the buffers into an Order, without an intermediate String per message.
+     * */
+    public Flux<Order> getDemo04Orders() {
+        return ordersStreamReconnector.reconnecting(() -> loadBalancer.stream(client -> client.get()
                 .uri("/demo04/orders/stream")
-                .responseContent()
-                .asString();
+                .response(this::toStream))
+                .transform(frames(new OrderParser()))
+                .transform(stream("demo04.orders")));
+    }
+
+    /* *
+     * Orders Stream, shared:
+     * Same orders as getDemo04Orders(), but all subscribers share one connection. Every subscriber has its own bounded buffer,
+     * one that falls behind loses orders by the overflow policy instead of holding up the others (see MulticastHub).
+     * */
+    public Flux<Order> getDemo04SharedOrders(String subscriber) {
+        return demo04OrdersHub.subscribe(subscriber);
     }
 
     /**
@@ -113,12 +320,11 @@ public class ExternalServiceClient extends AbstractHttpClient {
      * */
 
     public Mono<String> getProductNameWithScheduler(int productId) {
-        return this.httpClient.get()
+        return exchange("demo01.product", client -> client.get()
                 .uri("/demo01/product/" + productId)
-                .responseContent()
-                .asString()
+                .response(this::toResponse)
                 .doOnNext(product -> log.info("next: {}", product)) // will be executed by the nio thread.
-                .next()
+                .next())
                 .publishOn(Schedulers.boundedElastic()); // the idea here is to free the nio threads.
         // When the events come from top to bottom, it encounters publishOn. Then nio threads will off load the task to bounded elastic thread pool.
     }
@@ -129,11 +335,10 @@ public class ExternalServiceClient extends AbstractHttpClient {
      * Gives the price for product ids 1 - 10. Takes 1 second to respond.
      * */
     public Mono<String> getDemo05PriceName(int productId) {
-        return this.httpClient.get()
+        return demo05PriceHedger.hedge(() -> exchange("demo05.price", client -> client.get()
                 .uri("/demo05/price/" + productId)
-                .responseContent()
-                .asString()
-                .next();
+                .response(this::toResponse)
+                .next()));
     }
 
     /* *
@@ -142,11 +347,10 @@ public class ExternalServiceClient extends AbstractHttpClient {
      * Gives the product name for product ids 1 - 10. Takes 1 second to respond.
      * */
     public Mono<String> getDemo05ProductName(int productId) {
-        return this.httpClient.get()
+        return demo05ProductHedger.hedge(() -> exchange("demo05.product", client -> client.get()
                 .uri("/demo05/product/" + productId)
-                .responseContent()
-                .asString()
-                .next();
+                .response(this::toResponse)
+                .next()));
     }
 
     /* *
@@ -155,11 +359,45 @@ public class ExternalServiceClient extends AbstractHttpClient {
      * Gives the review for product ids 1 - 10. Takes 1 second to respond.
      * */
     public Mono<String> getDemo05ReviewName(int productId) {
-        return this.httpClient.get()
+        return demo05ReviewHedger.hedge(() -> exchange("demo05.review", client -> client.get()
                 .uri("/demo05/review/" + productId)
-                .responseContent()
-                .asString()
-                .next();
+                .response(this::toResponse)
+                .next()));
+    }
+
+    /* *
+     * Scatter-gather over the three demo05 services:
+     * Fans out the product name, price and review lookups concurrently. Whatever has not arrived when the deadline passes
+     * is marked absent in the aggregate as timed out (and its request cancelled), so one slow service no longer holds back the
+     * others. A lookup that failed before the deadline is marked as failed.
+     * */
+    public Mono<ProductAggregate> getProductAggregate(int productId, Duration deadline) {
+        return Mono.zip(
+                        part(getDemo05ProductName(productId), deadline, "product", productId),
+                        part(getDemo05PriceName(productId), deadline, "price", productId),
+                        part(getDemo05ReviewName(productId), deadline, "review", productId)
+                )
+                .map(parts -> new ProductAggregate(productId, parts.getT1(), parts.getT2(), parts.getT3()));
+    }
+
+    /* *
+     * Bulk variant for product pages: aggregates are emitted in the order of the given ids, with at most
+     * maxConcurrentProducts products (three requests each) in flight. The deadline applies to each product from the moment it starts.
+     * */
+    public Flux<ProductAggregate> getProductAggregates(Flux<Integer> productIds, Duration deadline, int maxConcurrentProducts) {
+        return productIds.flatMapSequential(productId -> getProductAggregate(productId, deadline), maxConcurrentProducts);
+    }
+
+    // every outcome before the deadline is a part, so nothing but the deadline leaves take(deadline) empty
+    private Mono<ProductAggregate.Part> part(Mono<String> lookup, Duration deadline, String name, int productId) {
+        return lookup.map(ProductAggregate.Part::ok)
+                .defaultIfEmpty(ProductAggregate.Part.absent(ProductAggregate.Status.EMPTY))
+                .onErrorResume(ex -> {
+                    log.warn("{} of product {} failed: {}", name, productId, ex.getMessage());
+                    return Mono.just(ProductAggregate.Part.absent(ProductAggregate.Status.FAILED));
+                })
+                .take(deadline)
+                .defaultIfEmpty(ProductAggregate.Part.absent(ProductAggregate.Status.TIMED_OUT));
     }
 
     /* *
@@ -175,10 +413,10 @@ public class ExternalServiceClient extends AbstractHttpClient {
      * Provides a random country name. Response time 100ms.
      * */
     public Mono<String> getCountryNameForRepeat() {
-        return this.httpClient.get()
+        return exchange("demo06.country", client -> client.get()
                 .uri("/demo06/country")
-                .response(((httpClientResponse, byteBufFlux) -> toResponse(httpClientResponse, byteBufFlux)))
-                .next();
+                .response(this::toResponse)
+                .next());
     }
 
     /* *
@@ -187,12 +425,13 @@ public class ExternalServiceClient extends AbstractHttpClient {
      * Provides the product name for the given product id.
      * Product id: 1 - 400 Bad Request,
      * Product id: 2 - Random 500 Internal Server Error.
+     * The 400 is remembered for a while (see NegativeCache), the 500 is not.
      * */
     public Mono<String> getProductNameForRetry(int productId) {
-        return this.httpClient.get()
+        return demo06ProductNameMisses.get(productId, () -> exchange("demo06.product", client -> client.get()
                 .uri("/demo06/product/" + productId)
-                .response(((httpClientResponse, byteBufFlux) -> toResponse(httpClientResponse, byteBufFlux)))
-                .next();
+                .response(this::toResponse)
+                .next()));
     }
 
     /* *
@@ -201,13 +440,75 @@ public class ExternalServiceClient extends AbstractHttpClient {
      * Gives a random book name.
      * */
     public Mono<String> getBook() {
-        return this.httpClient.get()
+        // the rate limiter runs first, so a rejected call never reaches the circuit breaker
+        return RateLimiter.<String>limitCalls()
+                .then(book())
+                .contextWrite(UserService.userCategoryContext());
+    }
+
+    /* *
+     * Same Book Service, but a call over the rate limit waits for the user's category to get a token again instead of failing.
+     * It still fails once maxWait has passed, or when too many calls of the category are waiting already.
+     * */
+    public Mono<String> getBookWhenAllowed(Duration maxWait) {
+        return RateLimiter.<String>queueCalls(maxWait)
+                .then(book())
+                .contextWrite(UserService.userCategoryContext());
+    }
+
+    private Mono<String> book() {
+        return exchange("demo07.book", client -> client.get()
                 .uri("/demo07/book")
-                .responseContent()
-                .asString()
-                .startWith(RateLimiter.limitCalls())
-                .contextWrite(UserService.userCategoryContext())
-                .next();
+                .response(this::toResponse)
+                .next());
+    }
+
+    // the disk cache is flushed and its directory released, a new client may take it over
+    @Override
+    public void dispose() {
+        productNameDiskCache.close();
+        super.dispose();
+    }
+
+    // every HTTP exchange goes to a replica picked by the balancer of the endpoint's bulkhead, and is held to the bulkhead's permits,
+    // the concurrency limit of the endpoint, guarded by its circuit breaker, measured, and successful exchanges fund the retry budget.
+    // The permits come first, so time spent waiting for one never makes a call slow for the circuit breaker. Calls rejected by
+    // any of them never reach the endpoint, so they are not measured as exchanges
+    private Mono<String> exchange(String endpoint, Function<HttpClient, Mono<String>> request) {
+        Bulkhead bulkhead = bulkhead(endpoint);
+        CircuitBreaker circuitBreaker = circuitBreaker(endpoint);
+        ConcurrencyLimiter concurrencyLimiter = concurrencyLimiter(endpoint);
+        AdaptiveTimeout timeout = timeout(endpoint);
+        ExchangeMetrics metrics = clientMetrics.forEndpoint(endpoint);
+        Mono<String> response = bulkhead.loadBalancer().exchange(request);
+        // deferred, so each of them is only asked once the permit before it is held
+        return bulkhead.call(Mono.defer(() -> concurrencyLimiter.limit(Mono.defer(() ->
+                circuitBreaker.protect(metrics.measure(timeout.protect(response)).doOnSuccess(value -> retryBudget.onSuccess()))))));
+    }
+
+    // splits a stream into its elements, by chunk or by delimiter as configured
+    private <T> Function<Flux<ByteBuf>, Flux<T>> frames(FrameParser<T> parser) {
+        StreamSettings stream = settings.stream();
+        if (stream.delimiter().isEmpty()) {
+            return chunks -> DelimitedFrameDecoder.decodeChunks(chunks, stream.maxFrameLength(), parser);
+        }
+        return chunks -> DelimitedFrameDecoder.decode(chunks, (byte) stream.delimiter().charAt(0), stream.maxFrameLength(), parser);
+    }
+
+    // applied to every streaming exchange
+    private <T> Function<Flux<T>, Flux<T>> stream(String endpoint) {
+        ExchangeMetrics metrics = clientMetrics.forEndpoint(endpoint);
+        return metrics::measure;
+    }
+
+    // the body of a stream, once the status says it is one
+    private Flux<ByteBuf> toStream(HttpClientResponse httpClientResponse, ByteBufFlux byteBufFlux) {
+        return switch (httpClientResponse.status().code()) {
+            case 200 -> byteBufFlux;
+            case 400 -> Flux.error(new ClientError());
+            case 500 -> Flux.error(new ServerError());
+            default -> throw new IllegalStateException("Unexpected value: " + httpClientResponse.status().code());
+        };
     }
 
     private Flux<String> toResponse(HttpClientResponse httpClientResponse, ByteBufFlux byteBufFlux) {
@@ -0,0 +1,24 @@
+package com.nonblocking.http.client.reactorclient.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* *
+ * One ExchangeMetrics per endpoint name, created on first use.
+ * */
+public class ClientMetrics {
+
+    private final Map<String, ExchangeMetrics> endpoints = new ConcurrentHashMap<>();
+
+    public ExchangeMetrics forEndpoint(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, ExchangeMetrics::new);
+    }
+
+    // by endpoint name, for endpoints that had at least one exchange
+    public Map<String, ExchangeMetrics.Snapshot> snapshot() {
+        Map<String, ExchangeMetrics.Snapshot> snapshot = new TreeMap<>();
+        endpoints.forEach((endpoint, metrics) -> snapshot.put(endpoint, metrics.snapshot()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,250 @@
+package com.nonblocking.http.client.reactorclient.metrics;
+
+import com.nonblocking.http.client.reactorclient.exception.ClientError;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ConnectTimeoutException;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.http.client.HttpClientResponse;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/* *
+ * Latencies and outcomes of the HTTP exchanges of one endpoint.
+ *
+ * Two latencies are recorded per exchange, both from subscribe: to the first byte (the response headers are in) and to
+ * completion (for streams: the end of the stream). Recording goes to HdrHistogram Recorders, which are wait-free for the event
+ * loop threads; snapshots swap the interval histograms out and fold them into cumulative ones, so the hot path never takes a lock.
+ * Cancelled exchanges are counted, but their completion latency is not recorded, since it is the caller who decided when they ended.
+ *
+ * The published percentiles are read from the same histograms as the snapshots, cumulative since the client was created;
+ * the latency timer itself only counts and sums, so every sample goes into one histogram and not two.
+ *
+ * Published meters:
+ *      external.service.requests{endpoint, outcome=success|4xx|5xx|timeout|cancel|error}
+ *      external.service.latency{endpoint, phase=first-byte|complete}
+ *      external.service.latency.percentile{endpoint, phase=first-byte|complete, percentile=0.5|0.9|0.99|0.999}
+ * */
+public class ExchangeMetrics {
+
+    // microsecond resolution keeps each histogram small; latencies above the highest are clamped, so a hung exchange can never overflow it
+    private static final long LOWEST_DISCERNIBLE_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final String endpoint;
+
+    private final Phase firstByte = new Phase();
+    private final Phase completion = new Phase();
+
+    private final Outcome success;
+    private final Outcome clientErrors;
+    private final Outcome serverErrors;
+    private final Outcome timeouts;
+    private final Outcome cancels;
+    private final Outcome errors;
+
+    private final Timer firstByteTimer;
+    private final Timer completionTimer;
+
+    public ExchangeMetrics(String endpoint) {
+        this.endpoint = endpoint;
+        this.success = outcome("success");
+        this.clientErrors = outcome("4xx");
+        this.serverErrors = outcome("5xx");
+        this.timeouts = outcome("timeout");
+        this.cancels = outcome("cancel");
+        this.errors = outcome("error");
+        this.firstByteTimer = timer("first-byte", firstByte);
+        this.completionTimer = timer("complete", completion);
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    /* *
+     * Measures every subscription to the exchange. The first byte is marked by the HttpClient itself, see firstByte below.
+     * */
+    public <T> Mono<T> measure(Mono<T> exchange) {
+        return Mono.defer(() -> {
+            Exchange measured = new Exchange(System.nanoTime());
+            return measured.observe(exchange).contextWrite(Context.of(Exchange.class, measured));
+        });
+    }
+
+    public <T> Flux<T> measure(Flux<T> exchange) {
+        return Flux.defer(() -> {
+            Exchange measured = new Exchange(System.nanoTime());
+            return measured.observe(exchange).contextWrite(Context.of(Exchange.class, measured));
+        });
+    }
+
+    /* *
+     * Registered with HttpClient.doOnResponse, so it runs on the event loop as soon as the response headers are in.
+     * The exchange being measured travels in the subscriber context of the request.
+     * */
+    public static void firstByte(HttpClientResponse response, Connection connection) {
+        response.currentContextView()
+                .<Exchange>getOrEmpty(Exchange.class)
+                .ifPresent(Exchange::firstByte);
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(endpoint, success.sum(), clientErrors.sum(), serverErrors.sum(), timeouts.sum(), cancels.sum(), errors.sum(),
+                firstByte.latency(), completion.latency());
+    }
+
+    private Outcome outcome(String outcome) {
+        return new Outcome(new LongAdder(), Metrics.counter("external.service.requests", "endpoint", endpoint, "outcome", outcome));
+    }
+
+    private Timer timer(String phase, Phase histogram) {
+        for (double percentile : PERCENTILES) {
+            Gauge.builder("external.service.latency.percentile", this, metrics -> metrics.seconds(histogram, percentile))
+                    .tags("endpoint", endpoint, "phase", phase, "percentile", String.valueOf(percentile))
+                    .baseUnit("seconds")
+                    .register(Metrics.globalRegistry);
+        }
+        return Timer.builder("external.service.latency")
+                .tags("endpoint", endpoint, "phase", phase)
+                .register(Metrics.globalRegistry);
+    }
+
+    private synchronized double seconds(Phase phase, double percentile) {
+        return phase.fold().getValueAtPercentile(percentile * 100) / 1e9;
+    }
+
+    private static void record(Phase phase, Timer timer, long nanos) {
+        phase.recorder.recordValue(Math.min(nanos, HIGHEST_TRACKABLE_NANOS));
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // the recorder takes the samples, snapshots fold its interval histogram (recycled, so that does not allocate either) into the cumulative one
+    private static class Phase {
+
+        private final Recorder recorder = new Recorder(LOWEST_DISCERNIBLE_NANOS, HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        private final Histogram cumulative = new Histogram(LOWEST_DISCERNIBLE_NANOS, HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        private Histogram interval;
+
+        private Histogram fold() {
+            interval = recorder.getIntervalHistogram(interval);
+            cumulative.add(interval);
+            return cumulative;
+        }
+
+        private Latency latency() {
+            return Latency.of(fold());
+        }
+    }
+
+    // one measured exchange, the first byte is marked on the event loop and read nowhere else
+    private class Exchange {
+
+        private final long startNanos;
+        private boolean firstByteSeen;
+
+        private Exchange(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        // a redirect or a retried connection brings more than one response, only the first one counts
+        private void firstByte() {
+            if (!firstByteSeen) {
+                firstByteSeen = true;
+                record(firstByte, firstByteTimer, System.nanoTime() - startNanos);
+            }
+        }
+
+        private <T> Mono<T> observe(Mono<T> exchange) {
+            return exchange
+                    .doOnSuccess(value -> complete(null))
+                    .doOnError(this::complete)
+                    .doOnCancel(cancels::increment);
+        }
+
+        private <T> Flux<T> observe(Flux<T> exchange) {
+            return exchange
+                    .doOnComplete(() -> complete(null))
+                    .doOnError(this::complete)
+                    .doOnCancel(cancels::increment);
+        }
+
+        private void complete(Throwable error) {
+            record(completion, completionTimer, System.nanoTime() - startNanos);
+            outcome(error).increment();
+        }
+
+        private Outcome outcome(Throwable error) {
+            if (error == null) {
+                return success;
+            }
+            if (error instanceof ClientError) {
+                return clientErrors;
+            }
+            if (error instanceof ServerError) {
+                return serverErrors;
+            }
+            if (error instanceof TimeoutException || error instanceof io.netty.handler.timeout.TimeoutException
+                    || error instanceof ConnectTimeoutException) {
+                return timeouts;
+            }
+            return errors;
+        }
+    }
+
+    // the meter is shared by all clients talking to the endpoint, the adder belongs to this client's snapshots
+    private record Outcome(LongAdder count, Counter counter) {
+
+        void increment() {
+            count.increment();
+            counter.increment();
+        }
+
+        long sum() {
+            return count.sum();
+        }
+    }
+
+    public record Snapshot(String endpoint,
+                           long success,
+                           long clientErrors,
+                           long serverErrors,
+                           long timeouts,
+                           long cancels,
+                           long errors,
+                           Latency firstByte,
+                           Latency completion) {
+
+        public long total() {
+            return success + clientErrors + serverErrors + timeouts + cancels + errors;
+        }
+    }
+
+    /* *
+     * Latency distribution since the client was created. Percentiles are accurate to the 2 significant digits kept by the histogram.
+     * */
+    public record Latency(long count, Duration p50, Duration p90, Duration p99, Duration p999, Duration max) {
+
+        static Latency of(Histogram histogram) {
+            return new Latency(histogram.getTotalCount(),
+                    Duration.ofNanos(histogram.getValueAtPercentile(50)),
+                    Duration.ofNanos(histogram.getValueAtPercentile(90)),
+                    Duration.ofNanos(histogram.getValueAtPercentile(99)),
+                    Duration.ofNanos(histogram.getValueAtPercentile(99.9)),
+                    Duration.ofNanos(histogram.getMaxValue()));
+        }
+    }
+}
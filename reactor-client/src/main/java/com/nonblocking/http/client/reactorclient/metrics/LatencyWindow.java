@@ -0,0 +1,46 @@
+package com.nonblocking.http.client.reactorclient.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* *
+ * The most recent latency samples of an endpoint in a fixed size ring, written without locks.
+ * Percentiles are computed on demand from a copy, which is cheap for the few hundred samples kept.
+ * */
+public class LatencyWindow {
+
+    private final AtomicLongArray samples;
+    private final AtomicLong recorded = new AtomicLong();
+
+    public LatencyWindow(int capacity) {
+        this.samples = new AtomicLongArray(capacity);
+    }
+
+    public void record(long nanos) {
+        int slot = (int) (recorded.getAndIncrement() % samples.length());
+        samples.set(slot, nanos);
+    }
+
+    public int size() {
+        return (int) Math.min(recorded.get(), samples.length());
+    }
+
+    /* *
+     * @param quantile between 0 and 1, e.g. 0.95
+     * @return the latency in nanos at the quantile, or -1 if nothing was recorded yet
+     * */
+    public long percentile(double quantile) {
+        int size = size();
+        if (size == 0) {
+            return -1;
+        }
+        long[] copy = new long[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = samples.get(i);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(quantile * size) - 1;
+        return copy[Math.max(0, Math.min(size - 1, index))];
+    }
+}
@@ -0,0 +1,40 @@
+package com.nonblocking.http.client.reactorclient.model;
+
+import java.util.Optional;
+
+/* *
+ * Product name, price and review of one product, gathered concurrently under one deadline.
+ * A part that did not arrive in time or could not be fetched is absent instead of failing the whole aggregate; its status
+ * says which of the two it was, so a page can tell "no review yet" from "review service down".
+ * */
+public record ProductAggregate(int productId, Part productName, Part price, Part review) {
+
+    public boolean isComplete() {
+        return productName.value().isPresent() && price.value().isPresent() && review.value().isPresent();
+    }
+
+    /* *
+     * How a part came out:
+     *  - OK:         it arrived in time, with a value.
+     *  - EMPTY:      the service answered in time, without a value.
+     *  - TIMED_OUT:  no answer within the deadline, the request was cancelled.
+     *  - FAILED:     the request failed before the deadline.
+     * */
+    public enum Status {
+        OK,
+        EMPTY,
+        TIMED_OUT,
+        FAILED
+    }
+
+    public record Part(Status status, Optional<String> value) {
+
+        public static Part ok(String value) {
+            return new Part(Status.OK, Optional.of(value));
+        }
+
+        public static Part absent(Status status) {
+            return new Part(status, Optional.empty());
+        }
+    }
+}
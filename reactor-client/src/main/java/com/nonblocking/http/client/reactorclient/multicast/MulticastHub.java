@@ -0,0 +1,139 @@
+package com.nonblocking.http.client.reactorclient.multicast;
+
+import com.nonblocking.http.client.reactorclient.config.MulticastSettings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/* *
+ * Shares one upstream stream, and so one connection, between any number of local subscribers:
+ *
+ *      MulticastHub<Order> hub = client.demo04OrdersHub();
+ *      hub.subscribe("revenue").subscribe(revenueService::consume);
+ *      hub.subscribe("inventory").subscribe(inventoryService::consume);
+ *
+ * The upstream is connected with the first subscriber and disconnected when the last one left (after the linger time).
+ * It is always read at full speed: every subscriber has its own bounded buffer, and a subscriber whose buffer is full loses
+ * elements by its overflow policy instead of slowing the upstream down for everybody. Subscribers that join late only see
+ * the elements from then on.
+ *
+ * Every subscriber is delivered to on a worker of its own, so one that blocks in onNext only falls behind itself: its buffer
+ * absorbs the elements it is behind while the others go on. lag() reports how far behind every subscriber is, the element
+ * being handed to it included.
+ *
+ * Published meters: external.service.multicast.subscribers{stream}, external.service.multicast.lag{stream, subscriber},
+ * external.service.multicast.dropped{stream, subscriber}
+ * */
+public class MulticastHub<T> {
+
+    private final String stream;
+    private final MulticastSettings settings;
+    private final Flux<T> shared;
+    private final Map<String, Member> members = new ConcurrentHashMap<>();
+
+    public MulticastHub(String stream, Flux<T> upstream, MulticastSettings settings) {
+        this.stream = stream;
+        this.settings = settings;
+        this.shared = settings.linger().isZero() ? upstream.publish().refCount(1) : upstream.publish().refCount(1, settings.linger());
+        Metrics.gauge("external.service.multicast.subscribers", Tags.of("stream", stream), members, Map::size);
+    }
+
+    public Flux<T> subscribe(String subscriber) {
+        return subscribe(subscriber, settings.bufferSize(), settings.overflow());
+    }
+
+    // subscriber names identify the subscribers in lag() and in the meters, a name can only be subscribed once at a time
+    public Flux<T> subscribe(String subscriber, int bufferSize, MulticastSettings.Overflow overflow) {
+        return Flux.defer(() -> {
+            Member member = new Member(subscriber);
+            if (members.putIfAbsent(subscriber, member) != null) {
+                return Flux.error(new IllegalStateException(subscriber + " is already subscribed to " + stream));
+            }
+            return shared.doOnNext(element -> member.received.increment())
+                    .onBackpressureBuffer(bufferSize, element -> member.dropped(), strategy(overflow))
+                    // one element at a time, so whatever it is behind stays in its buffer and under its overflow policy
+                    .publishOn(Schedulers.boundedElastic(), 1)
+                    .doOnNext(element -> member.delivered.increment())
+                    // before the terminal signal reaches the subscriber's worker, so it has left once it saw the end
+                    .doOnTerminate(member::leave)
+                    .doOnCancel(member::leave);
+        });
+    }
+
+    public int subscribers() {
+        return members.size();
+    }
+
+    // the subscribers currently subscribed, most behind first
+    public List<Lag> lag() {
+        return members.values().stream()
+                .map(Member::lag)
+                .sorted(Comparator.comparingLong(Lag::buffered).reversed())
+                .toList();
+    }
+
+    private static BufferOverflowStrategy strategy(MulticastSettings.Overflow overflow) {
+        return switch (overflow) {
+            case DROP_OLDEST -> BufferOverflowStrategy.DROP_OLDEST;
+            case DROP_LATEST -> BufferOverflowStrategy.DROP_LATEST;
+            case ERROR -> BufferOverflowStrategy.ERROR;
+        };
+    }
+
+    /* *
+     * How far a subscriber is behind the upstream:
+     *  - buffered:   elements received for it but not yet delivered, its lag.
+     *  - dropped:    elements it lost to its overflow policy.
+     *  - delivered:  elements it got.
+     * */
+    public record Lag(String subscriber, long buffered, long dropped, long delivered) {
+    }
+
+    // one subscription, counted without locks: the three counters are only ever added to
+    private class Member {
+
+        private final String name;
+        private final LongAdder received = new LongAdder();
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final Counter droppedCounter;
+        private final Gauge lagGauge;
+
+        private Member(String name) {
+            this.name = name;
+            Tags tags = Tags.of("stream", stream, "subscriber", name);
+            this.droppedCounter = Metrics.counter("external.service.multicast.dropped", tags);
+            this.lagGauge = Gauge.builder("external.service.multicast.lag", this, member -> member.lag().buffered())
+                    .tags(tags)
+                    .register(Metrics.globalRegistry);
+        }
+
+        private void dropped() {
+            dropped.increment();
+            droppedCounter.increment();
+        }
+
+        private Lag lag() {
+            long delivered = this.delivered.sum();
+            long dropped = this.dropped.sum();
+            // read last, so buffered is never negative
+            long received = this.received.sum();
+            return new Lag(name, Math.max(0, received - delivered - dropped), dropped, delivered);
+        }
+
+        private void leave() {
+            members.remove(name, this);
+            Metrics.globalRegistry.remove(lagGauge);
+        }
+    }
+}
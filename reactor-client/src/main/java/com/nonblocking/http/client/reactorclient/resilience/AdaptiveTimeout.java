@@ -0,0 +1,112 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.TimeoutSettings;
+import com.nonblocking.http.client.reactorclient.exception.ClientError;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import com.nonblocking.http.client.reactorclient.metrics.LatencyWindow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.TimeGauge;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/* *
+ * Timeout of one endpoint that follows its latency: the tracked quantile of the recent latencies times the multiplier,
+ * clamped between floor and ceiling. Until minSamples latencies were observed the initial timeout applies.
+ *
+ * Every answer of the service is a sample, errors included, they took the service as long. A fired timeout is a sample too,
+ * of the timeout itself: the response took at least that long. Without it the slow responses would never be seen, and a
+ * timeout that once dropped too low would stay there. When more requests time out than the quantile leaves room for, the
+ * timeout grows by the multiplier each time it is computed, up to the ceiling.
+ *
+ * The quantile comes from a LatencyWindow of the recent samples. Sorting it on every call would be wasted work, so the timeout
+ * is computed again every few samples and right after a timeout fired; calls read it from a volatile.
+ *
+ * Published meters: external.service.timeout.current{endpoint}, external.service.timeout.fired{endpoint}
+ * */
+public class AdaptiveTimeout {
+
+    private static final int WINDOW = 512;
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final String endpoint;
+    private final TimeoutSettings settings;
+    private final LatencyWindow latencies = new LatencyWindow(WINDOW);
+    private final AtomicLong samples = new AtomicLong();
+    private volatile long timeoutNanos;
+    private final LongAdder fired = new LongAdder();
+    private final Counter firedCounter;
+
+    public AdaptiveTimeout(String endpoint, TimeoutSettings settings) {
+        this.endpoint = endpoint;
+        this.settings = settings;
+        this.timeoutNanos = settings.initial().toNanos();
+        this.firedCounter = Metrics.counter("external.service.timeout.fired", "endpoint", endpoint);
+        TimeGauge.builder("external.service.timeout.current", this, TimeUnit.NANOSECONDS, timeout -> timeout.timeoutNanos)
+                .tag("endpoint", endpoint)
+                .register(Metrics.globalRegistry);
+    }
+
+    /* *
+     * Fails the call with a TimeoutException when it did not signal within the current timeout of the endpoint.
+     * The timeout is read once per subscription, so a change never affects a request already on its way.
+     * */
+    public <T> Mono<T> protect(Mono<T> call) {
+        if (!settings.enabled()) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            long timeout = timeoutNanos;
+            long start = System.nanoTime();
+            return call
+                    .timeout(Duration.ofNanos(timeout), Mono.defer(() -> {
+                        fired.increment();
+                        firedCounter.increment();
+                        record(timeout);
+                        recompute();
+                        return Mono.error(new TimeoutException("no response from " + endpoint + " within " + Duration.ofNanos(timeout)));
+                    }))
+                    .doOnSuccess(value -> sample(System.nanoTime() - start))
+                    .doOnError(error -> {
+                        // answers of the service only, a failed connect says nothing about how long it takes to answer
+                        if (error instanceof ClientError || error instanceof ServerError) {
+                            sample(System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
+    public Duration current() {
+        return Duration.ofNanos(timeoutNanos);
+    }
+
+    public long fired() {
+        return fired.sum();
+    }
+
+    // the timeout is computed again with every RECOMPUTE_EVERY-th sample
+    void sample(long nanos) {
+        if (record(nanos) % RECOMPUTE_EVERY == 0) {
+            recompute();
+        }
+    }
+
+    private long record(long nanos) {
+        latencies.record(nanos);
+        return samples.incrementAndGet();
+    }
+
+    // racing recomputes are harmless, each one reads the whole window
+    private void recompute() {
+        if (latencies.size() < settings.minSamples()) {
+            return;
+        }
+        long tracked = (long) (latencies.percentile(settings.quantile()) * settings.multiplier());
+        timeoutNanos = Math.max(settings.floor().toNanos(), Math.min(settings.ceiling().toNanos(), tracked));
+    }
+}
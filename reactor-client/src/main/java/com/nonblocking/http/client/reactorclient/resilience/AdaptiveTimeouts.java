@@ -0,0 +1,23 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.TimeoutSettings;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* *
+ * One AdaptiveTimeout per endpoint name, created on first use.
+ * */
+public class AdaptiveTimeouts {
+
+    private final TimeoutSettings settings;
+    private final Map<String, AdaptiveTimeout> timeouts = new ConcurrentHashMap<>();
+
+    public AdaptiveTimeouts(TimeoutSettings settings) {
+        this.settings = settings;
+    }
+
+    public AdaptiveTimeout forEndpoint(String endpoint) {
+        return timeouts.computeIfAbsent(endpoint, name -> new AdaptiveTimeout(name, settings));
+    }
+}
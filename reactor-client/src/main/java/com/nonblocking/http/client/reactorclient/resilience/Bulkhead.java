@@ -0,0 +1,71 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.balancer.LoadBalancer;
+import com.nonblocking.http.client.reactorclient.config.BulkheadSettings;
+import com.nonblocking.http.client.reactorclient.exception.BulkheadFullError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import reactor.core.publisher.Mono;
+
+/* *
+ * Compartment of a group of endpoints (see BulkheadSettings): the group has its own connection pool, reached through its own
+ * LoadBalancer, and a fixed number of permits. Once they are all in use calls wait in a bounded FIFO queue, on a timer and not
+ * on a blocked thread; a full queue or maxWait rejects with BulkheadFullError. A group that is saturated, e.g. because its
+ * service slowed down, so uses up its own connections and permits, never those of another group.
+ *
+ * Endpoints in no group share the bulkhead of the client's own pool, which has no permit limit.
+ *
+ * Published meters: external.service.bulkhead.in-flight{group}, external.service.bulkhead.queued{group},
+ * external.service.bulkhead.rejected{group}
+ * */
+public class Bulkhead {
+
+    private final String group;
+    private final LoadBalancer loadBalancer;
+    private final PermitQueue permits;
+
+    public Bulkhead(String group, BulkheadSettings.Group settings, LoadBalancer loadBalancer) {
+        this.group = group;
+        this.loadBalancer = loadBalancer;
+        Tags tags = Tags.of("group", group);
+        Metrics.gauge("external.service.bulkhead.in-flight", tags, this, Bulkhead::inFlight);
+        Metrics.gauge("external.service.bulkhead.queued", tags, this, Bulkhead::queued);
+        Counter rejected = Metrics.counter("external.service.bulkhead.rejected", tags);
+        this.permits = settings == null ? null : new PermitQueue(settings::maxConcurrent, settings.maxQueue(), settings.maxWait(),
+                rejected, () -> new BulkheadFullError(group));
+    }
+
+    // the bulkhead of the endpoints in no group: the client's own pool, without a permit limit
+    public static Bulkhead shared(LoadBalancer loadBalancer) {
+        return new Bulkhead("shared", null, loadBalancer);
+    }
+
+    public String group() {
+        return group;
+    }
+
+    public LoadBalancer loadBalancer() {
+        return loadBalancer;
+    }
+
+    public int inFlight() {
+        return permits == null ? 0 : permits.inFlight();
+    }
+
+    public int queued() {
+        return permits == null ? 0 : permits.queued();
+    }
+
+    /* *
+     * Holds a permit of the group for every subscription to the call, until the call terminates or is cancelled:
+     *
+     *      call.transformDeferred(bulkhead::call)
+     * */
+    public <T> Mono<T> call(Mono<T> call) {
+        if (permits == null) {
+            return call;
+        }
+        return permits.acquire().flatMap(permit -> call.doFinally(signal -> permit.release()));
+    }
+}
@@ -0,0 +1,205 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.CircuitBreakerSettings;
+import com.nonblocking.http.client.reactorclient.exception.CircuitOpenError;
+import com.nonblocking.http.client.reactorclient.exception.ClientError;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/* *
+ * Circuit breaker of one endpoint, without locks: the state is an immutable snapshot swapped with CAS,
+ * the outcomes of the last windowSize calls live in an AtomicIntegerArray ring.
+ *
+ *      CLOSED    --(failure rate or slow-call rate above threshold)-->  OPEN
+ *      OPEN      --(openDuration elapsed, next call)-->                 HALF_OPEN
+ *      HALF_OPEN --(all probes succeeded)-->                            CLOSED
+ *      HALF_OPEN --(a probe failed or was slow)-->                      OPEN
+ *
+ * Calls that are not permitted fail fast with CircuitOpenError. Use it per subscription:
+ *
+ *      mono.transformDeferred(circuitBreaker::protect)
+ *
+ * Published meters: external.service.circuit.state{endpoint} (0 closed, 1 open, 2 half-open) and
+ * external.service.circuit.transitions{endpoint, from, to}.
+ * */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum Type {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private record State(Type type, long sinceNanos, int probesIssued, int probesSucceeded) {
+    }
+
+    private static final int RECORDED = 1;
+    private static final int FAILED = 2;
+    private static final int SLOW = 4;
+
+    private final String endpoint;
+    private final CircuitBreakerSettings settings;
+    private final AtomicReference<State> state = new AtomicReference<>(new State(Type.CLOSED, System.nanoTime(), 0, 0));
+    private final AtomicReference<Window> window;
+
+    public CircuitBreaker(String endpoint, CircuitBreakerSettings settings) {
+        this.endpoint = endpoint;
+        this.settings = settings;
+        this.window = new AtomicReference<>(new Window(settings.windowSize()));
+        Metrics.gauge("external.service.circuit.state", Tags.of("endpoint", endpoint), this, breaker -> breaker.state().ordinal());
+    }
+
+    public Type state() {
+        return state.get().type();
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        if (!settings.enabled()) {
+            return call;
+        }
+        State permittedIn = acquirePermission();
+        if (permittedIn == null) {
+            return Mono.error(new CircuitOpenError(endpoint));
+        }
+        long start = System.nanoTime();
+        return call
+                .doOnSuccess(value -> onResult(permittedIn, false, System.nanoTime() - start))
+                .doOnError(ex -> onResult(permittedIn, !(ex instanceof ClientError), System.nanoTime() - start))
+                .doOnCancel(() -> releaseProbe(permittedIn));
+    }
+
+    // returns the state the call was permitted in, or null if it is not permitted
+    private State acquirePermission() {
+        while (true) {
+            State current = state.get();
+            switch (current.type()) {
+                case CLOSED:
+                    return current;
+                case OPEN:
+                    if (System.nanoTime() - current.sinceNanos() < settings.openDuration().toNanos()) {
+                        return null;
+                    }
+                    transition(current, new State(Type.HALF_OPEN, System.nanoTime(), 0, 0));
+                    break;
+                case HALF_OPEN:
+                    if (current.probesIssued() >= settings.halfOpenProbes()) {
+                        return null;
+                    }
+                    State probing = new State(Type.HALF_OPEN, current.sinceNanos(), current.probesIssued() + 1, current.probesSucceeded());
+                    if (state.compareAndSet(current, probing)) {
+                        return probing;
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void onResult(State permittedIn, boolean failed, long elapsedNanos) {
+        boolean slow = elapsedNanos >= settings.slowCallDuration().toNanos();
+        if (permittedIn.type() == Type.CLOSED) {
+            Window calls = window.get();
+            calls.record(failed, slow);
+            if (calls.total() >= settings.minimumCalls()
+                    && (calls.failureRate() >= settings.failureRateThreshold() || calls.slowCallRate() >= settings.slowCallRateThreshold())) {
+                State current = state.get();
+                if (current.type() == Type.CLOSED) {
+                    transition(current, new State(Type.OPEN, System.nanoTime(), 0, 0));
+                }
+            }
+            return;
+        }
+        while (true) {
+            State current = state.get();
+            if (current.type() != Type.HALF_OPEN || current.sinceNanos() != permittedIn.sinceNanos()) {
+                return; // a late result of an earlier half-open phase
+            }
+            if (failed || slow) {
+                if (transition(current, new State(Type.OPEN, System.nanoTime(), 0, 0))) {
+                    return;
+                }
+                continue;
+            }
+            int succeeded = current.probesSucceeded() + 1;
+            State next = succeeded >= settings.halfOpenProbes()
+                    ? new State(Type.CLOSED, System.nanoTime(), 0, 0)
+                    : new State(Type.HALF_OPEN, current.sinceNanos(), current.probesIssued(), succeeded);
+            if (next.type() == Type.CLOSED ? transition(current, next) : state.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    // a cancelled probe gives its permit back
+    private void releaseProbe(State permittedIn) {
+        if (permittedIn.type() != Type.HALF_OPEN) {
+            return;
+        }
+        State current;
+        do {
+            current = state.get();
+            if (current.type() != Type.HALF_OPEN || current.sinceNanos() != permittedIn.sinceNanos()) {
+                return;
+            }
+        } while (!state.compareAndSet(current, new State(Type.HALF_OPEN, current.sinceNanos(), current.probesIssued() - 1, current.probesSucceeded())));
+    }
+
+    private boolean transition(State from, State to) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        if (to.type() == Type.CLOSED) {
+            window.set(new Window(settings.windowSize()));
+        }
+        log.info("circuit of {} changed from {} to {}", endpoint, from.type(), to.type());
+        Metrics.counter("external.service.circuit.transitions", "endpoint", endpoint, "from", from.type().name(), "to", to.type().name())
+                .increment();
+        return true;
+    }
+
+    /* *
+     * Count based sliding window. Every slot holds the outcome bits of one call; the counters are adjusted by the
+     * difference between the overwritten and the new outcome, so rates are available without scanning the ring.
+     * */
+    private static class Window {
+
+        private final AtomicIntegerArray outcomes;
+        private final AtomicLong index = new AtomicLong();
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger slow = new AtomicInteger();
+
+        Window(int size) {
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        void record(boolean failedCall, boolean slowCall) {
+            int outcome = RECORDED | (failedCall ? FAILED : 0) | (slowCall ? SLOW : 0);
+            int previous = outcomes.getAndSet((int) (index.getAndIncrement() % outcomes.length()), outcome);
+            total.addAndGet(1 - (previous & RECORDED));
+            failed.addAndGet(bit(outcome, FAILED) - bit(previous, FAILED));
+            slow.addAndGet(bit(outcome, SLOW) - bit(previous, SLOW));
+        }
+
+        int total() {
+            return total.get();
+        }
+
+        double failureRate() {
+            return 100.0 * failed.get() / Math.max(1, total.get());
+        }
+
+        double slowCallRate() {
+            return 100.0 * slow.get() / Math.max(1, total.get());
+        }
+
+        private static int bit(int outcome, int flag) {
+            return (outcome & flag) == 0 ? 0 : 1;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.CircuitBreakerSettings;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* *
+ * One CircuitBreaker per endpoint name, created on first use.
+ * */
+public class CircuitBreakers {
+
+    private final CircuitBreakerSettings settings;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakers(CircuitBreakerSettings settings) {
+        this.settings = settings;
+    }
+
+    public CircuitBreaker forEndpoint(String endpoint) {
+        return breakers.computeIfAbsent(endpoint, name -> new CircuitBreaker(name, settings));
+    }
+}
@@ -0,0 +1,133 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.ConcurrencyLimitSettings;
+import com.nonblocking.http.client.reactorclient.exception.CircuitOpenError;
+import com.nonblocking.http.client.reactorclient.exception.LimitExceededError;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.netty.channel.ConnectTimeoutException;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/* *
+ * Adaptive limit on the requests in flight to one endpoint, in the style of a gradient limiter.
+ *
+ * Every completed request is a round trip sample. A short-term and a long-term average of the round trips are kept; while the
+ * short-term one stays within tolerance of the long-term one the limit grows by a few permits, when the service starts
+ * queueing (round trips go up) the limit shrinks by the gradient long/short. Timeouts, server and connect errors shrink it by the
+ * backoff ratio. The limit only grows while at least half of it is in use, so an idle endpoint does not build up a limit it never proved.
+ *
+ * Requests over the limit wait in a bounded FIFO queue for a permit, on a timer and not on a blocked thread; a full queue
+ * or maxWait rejects with LimitExceededError. A released permit is handed straight to the oldest waiter.
+ *
+ * Published meters: external.service.concurrency.limit{endpoint}, external.service.concurrency.in-flight{endpoint},
+ * external.service.concurrency.queued{endpoint}, external.service.concurrency.rejected{endpoint}
+ * */
+public class ConcurrencyLimiter {
+
+    // permits the limit may grow by per sample, before smoothing
+    private static final int HEADROOM = 4;
+    // the long-term average follows about the last hundred samples
+    private static final double LONG_TERM_SMOOTHING = 0.01;
+    private static final double SHORT_TERM_SMOOTHING = 0.2;
+
+    private record Estimate(double limit, double shortRttNanos, double longRttNanos) {
+    }
+
+    private final String endpoint;
+    private final ConcurrencyLimitSettings settings;
+    private final AtomicReference<Estimate> estimate;
+    private final PermitQueue permits;
+
+    public ConcurrencyLimiter(String endpoint, ConcurrencyLimitSettings settings) {
+        this.endpoint = endpoint;
+        this.settings = settings;
+        this.estimate = new AtomicReference<>(new Estimate(settings.initialLimit(), 0, 0));
+        Tags tags = Tags.of("endpoint", endpoint);
+        Metrics.gauge("external.service.concurrency.limit", tags, this, ConcurrencyLimiter::limit);
+        Metrics.gauge("external.service.concurrency.in-flight", tags, this, ConcurrencyLimiter::inFlight);
+        Metrics.gauge("external.service.concurrency.queued", tags, this, ConcurrencyLimiter::queued);
+        Counter rejected = Metrics.counter("external.service.concurrency.rejected", tags);
+        this.permits = new PermitQueue(this::limit, settings.maxQueue(), settings.maxWait(), rejected, () -> new LimitExceededError(endpoint));
+    }
+
+    public int limit() {
+        return (int) estimate.get().limit();
+    }
+
+    public int inFlight() {
+        return permits.inFlight();
+    }
+
+    public int queued() {
+        return permits.queued();
+    }
+
+    /* *
+     * Holds a permit for every subscription to the call, from the moment it is granted until the call terminates or is cancelled:
+     *
+     *      call.transformDeferred(limiter::limit)
+     * */
+    public <T> Mono<T> limit(Mono<T> call) {
+        if (!settings.enabled()) {
+            return call;
+        }
+        return permits.acquire().flatMap(permit -> call
+                .doOnSuccess(value -> permit.release(rttNanos -> onSample(rttNanos, false)))
+                .doOnError(ex -> {
+                    if (ex instanceof CircuitOpenError) {
+                        permit.release(); // failed fast without a round trip
+                    } else {
+                        permit.release(rttNanos -> onSample(rttNanos, isDrop(ex)));
+                    }
+                })
+                // a cancelled call says nothing about the endpoint, it just frees the permit
+                .doOnCancel(permit::release));
+    }
+
+    private void onSample(long rttNanos, boolean drop) {
+        int inFlightAtRelease = permits.inFlight();
+        Estimate current;
+        Estimate next;
+        do {
+            current = estimate.get();
+            next = next(current, rttNanos, drop, inFlightAtRelease);
+        } while (!estimate.compareAndSet(current, next));
+    }
+
+    private Estimate next(Estimate current, long rttNanos, boolean drop, int inFlightAtRelease) {
+        if (drop) {
+            return new Estimate(clamp(current.limit() * settings.backoffRatio()), current.shortRttNanos(), current.longRttNanos());
+        }
+        if (current.longRttNanos() == 0) {
+            return new Estimate(current.limit(), rttNanos, rttNanos);
+        }
+        double shortRtt = current.shortRttNanos() + SHORT_TERM_SMOOTHING * (rttNanos - current.shortRttNanos());
+        double longRtt = current.longRttNanos() + LONG_TERM_SMOOTHING * (rttNanos - current.longRttNanos());
+        // after a long stretch of slow responses the long-term average has drifted up, pull it back once the service recovered
+        if (longRtt > 2 * shortRtt) {
+            longRtt *= 0.95;
+        }
+        if (inFlightAtRelease + 1 < current.limit() / 2) {
+            return new Estimate(current.limit(), shortRtt, longRtt);
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, settings.tolerance() * longRtt / shortRtt));
+        double estimated = current.limit() * gradient + HEADROOM;
+        double limit = current.limit() * (1 - settings.smoothing()) + estimated * settings.smoothing();
+        return new Estimate(clamp(limit), shortRtt, longRtt);
+    }
+
+    private double clamp(double limit) {
+        return Math.max(settings.minLimit(), Math.min(settings.maxLimit(), limit));
+    }
+
+    private static boolean isDrop(Throwable failure) {
+        return failure instanceof ServerError || failure instanceof TimeoutException || failure instanceof ConnectException
+                || failure instanceof io.netty.handler.timeout.TimeoutException || failure instanceof ConnectTimeoutException;
+    }
+}
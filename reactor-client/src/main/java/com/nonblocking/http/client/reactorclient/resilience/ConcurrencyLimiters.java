@@ -0,0 +1,23 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.ConcurrencyLimitSettings;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* *
+ * One ConcurrencyLimiter per endpoint name, created on first use.
+ * */
+public class ConcurrencyLimiters {
+
+    private final ConcurrencyLimitSettings settings;
+    private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimiters(ConcurrencyLimitSettings settings) {
+        this.settings = settings;
+    }
+
+    public ConcurrencyLimiter forEndpoint(String endpoint) {
+        return limiters.computeIfAbsent(endpoint, name -> new ConcurrencyLimiter(name, settings));
+    }
+}
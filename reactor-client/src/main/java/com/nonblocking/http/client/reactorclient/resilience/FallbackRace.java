@@ -0,0 +1,78 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.FallbackSettings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/* *
+ * Races a fallback against a slow primary instead of waiting for the primary to time out:
+ *
+ *      primary    |-------------------------------->
+ *      fallback         delay |-------->              first non-empty value wins, the other is cancelled
+ *
+ * The fallback is started once the primary has not answered within FallbackSettings.delay, or right away when the primary fails.
+ * An empty primary is an answer: the empty fallback is called at once, without waiting for the timer or a running fallback.
+ * An empty fallback is not, the primary is still waited for then. The call fails with the primary's error only when neither
+ * came up with a value.
+ * Cancelling the loser cancels its request only when nobody else waits on it: a lookup shared by coalesced callers keeps running
+ * for the others.
+ *
+ * Published counters: external.service.fallback{endpoint, result=started|primary|fallback|empty-fallback}
+ * */
+public class FallbackRace {
+
+    private final FallbackSettings settings;
+    private final Counter started;
+    private final Counter primaryWon;
+    private final Counter fallbackWon;
+    private final Counter emptyFallback;
+
+    public FallbackRace(String endpoint, FallbackSettings settings) {
+        this.settings = settings;
+        this.started = Metrics.counter("external.service.fallback", "endpoint", endpoint, "result", "started");
+        this.primaryWon = Metrics.counter("external.service.fallback", "endpoint", endpoint, "result", "primary");
+        this.fallbackWon = Metrics.counter("external.service.fallback", "endpoint", endpoint, "result", "fallback");
+        this.emptyFallback = Metrics.counter("external.service.fallback", "endpoint", endpoint, "result", "empty-fallback");
+    }
+
+    public <T> Mono<T> race(Mono<T> primary, Mono<T> fallback, Mono<T> onEmpty) {
+        return Mono.defer(() -> {
+            AtomicReference<Throwable> primaryFailure = new AtomicReference<>();
+            Sinks.Empty<Void> primaryFailed = Sinks.empty();
+            // an empty primary still emits, so it ends the race
+            Mono<Optional<T>> first = primary.map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .doOnSuccess(value -> {
+                        if (value.isPresent()) {
+                            primaryWon.increment();
+                        }
+                    })
+                    .doOnError(ex -> {
+                        primaryFailure.set(ex);
+                        primaryFailed.tryEmitEmpty();
+                    });
+            Mono<Optional<T>> second = Mono.firstWithSignal(Mono.delay(settings.delay()).then(), primaryFailed.asMono())
+                    .then(Mono.defer(() -> {
+                        started.increment();
+                        return fallback.map(Optional::of);
+                    }))
+                    .doOnSuccess(value -> {
+                        if (value != null) {
+                            fallbackWon.increment();
+                        }
+                    });
+            // the first value wins and cancels the other; empty completions and errors only count once both ended
+            return Mono.firstWithValue(first, second)
+                    .onErrorMap(ex -> primaryFailure.get() != null ? primaryFailure.get() : ex)
+                    .flatMap(result -> result.map(Mono::just).orElseGet(() -> {
+                        emptyFallback.increment();
+                        return onEmpty;
+                    }));
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.HedgeSettings;
+import com.nonblocking.http.client.reactorclient.metrics.LatencyWindow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/* *
+ * Hedged requests for one endpoint. The primary request is sent right away; if it has not signalled after the hedge delay
+ * (the tracked percentile of recent latencies), an identical hedge request is sent, provided the shared TokenBudget allows it.
+ * The first signal wins and the other request is cancelled. A failing hedge never fails the call, the primary decides then.
+ *
+ * Published counters: external.service.hedge{endpoint, result=issued|denied|won}
+ * */
+public class Hedger {
+
+    private static final int WINDOW = 256;
+
+    private final HedgeSettings settings;
+    private final TokenBudget budget;
+    private final LatencyWindow latencies = new LatencyWindow(WINDOW);
+    private final Counter issued;
+    private final Counter denied;
+    private final Counter won;
+
+    public Hedger(String endpoint, HedgeSettings settings, TokenBudget budget) {
+        this.settings = settings;
+        this.budget = budget;
+        this.issued = Metrics.counter("external.service.hedge", "endpoint", endpoint, "result", "issued");
+        this.denied = Metrics.counter("external.service.hedge", "endpoint", endpoint, "result", "denied");
+        this.won = Metrics.counter("external.service.hedge", "endpoint", endpoint, "result", "won");
+    }
+
+    public <T> Mono<T> hedge(Supplier<Mono<T>> call) {
+        if (!settings.enabled()) {
+            return Mono.defer(call);
+        }
+        return Mono.defer(() -> {
+            budget.deposit();
+            Mono<T> primary = timed(call, true);
+            Mono<T> hedge = Mono.delay(delay())
+                    .then(Mono.defer(() -> {
+                        if (!budget.tryWithdraw()) {
+                            denied.increment();
+                            return Mono.never();
+                        }
+                        issued.increment();
+                        return timed(call, false)
+                                .doOnSuccess(value -> won.increment())
+                                .onErrorResume(ex -> Mono.never());
+                    }));
+            return Mono.firstWithSignal(primary, hedge);
+        });
+    }
+
+    public Duration delay() {
+        if (settings.percentile() == 0 || latencies.size() < settings.minSamples()) {
+            return settings.delay();
+        }
+        Duration tracked = Duration.ofNanos(latencies.percentile(settings.percentile()));
+        return tracked.compareTo(settings.minDelay()) < 0 ? settings.minDelay() : tracked;
+    }
+
+    // the primary is sampled however it ended: cancelled, it still took at least that long, and leaving the slow calls out would
+    // pull the percentile down to the fast ones. A hedge only starts after the delay and is cancelled when the primary answered,
+    // so it is sampled only when it answered itself
+    private <T> Mono<T> timed(Supplier<Mono<T>> call, boolean primary) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            Runnable sample = () -> latencies.record(System.nanoTime() - start);
+            return primary
+                    ? call.get().doOnTerminate(sample).doOnCancel(sample)
+                    : call.get().doOnSuccess(value -> sample.run());
+        });
+    }
+}
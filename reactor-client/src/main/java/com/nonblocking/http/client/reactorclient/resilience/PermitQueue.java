@@ -0,0 +1,167 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/* *
+ * Permits up to a limit, shared by Bulkhead and ConcurrencyLimiter. Once they are all in use callers wait in a bounded FIFO
+ * queue, on a timer and not on a blocked thread; a full queue or maxWait rejects with the owner's error. A released permit is
+ * handed straight to the oldest waiter.
+ *
+ * The limit is read on every acquire, so it may move (see ConcurrencyLimiter); permits held over a lowered limit stay valid.
+ * */
+class PermitQueue {
+
+    private final IntSupplier limit;
+    private final int maxQueue;
+    private final Duration maxWait;
+    private final Counter rejected;
+    private final Supplier<? extends Throwable> rejection;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    PermitQueue(IntSupplier limit, int maxQueue, Duration maxWait, Counter rejected, Supplier<? extends Throwable> rejection) {
+        this.limit = limit;
+        this.maxQueue = maxQueue;
+        this.maxWait = maxWait;
+        this.rejected = rejected;
+        this.rejection = rejection;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    int queued() {
+        return queued.get();
+    }
+
+    Mono<Permit> acquire() {
+        return Mono.create(sink -> {
+            if (tryAcquire()) {
+                sink.success(new Permit());
+                return;
+            }
+            if (queued.incrementAndGet() > maxQueue) {
+                queued.decrementAndGet();
+                reject(sink);
+                return;
+            }
+            Waiter waiter = new Waiter(sink);
+            waiters.offer(waiter);
+            Disposable timer = Schedulers.parallel().schedule(() -> {
+                if (waiter.leave()) {
+                    reject(sink);
+                }
+            }, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            sink.onDispose(timer);
+            sink.onCancel(waiter::cancel);
+            drain(); // a permit may have been released between tryAcquire and offer
+        });
+    }
+
+    private boolean tryAcquire() {
+        int max = limit.getAsInt();
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= max) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    // hands free permits to the waiters in arrival order, skipping the ones that timed out or were cancelled meanwhile
+    private void drain() {
+        while (!waiters.isEmpty() && tryAcquire()) {
+            Waiter waiter = waiters.poll();
+            if (waiter == null || !waiter.grant()) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private void reject(MonoSink<Permit> sink) {
+        rejected.increment();
+        sink.error(rejection.get());
+    }
+
+    // one granted permit, released exactly once however the call ends
+    class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void release() {
+            release(heldNanos -> {
+            });
+        }
+
+        // the sample gets the time the permit was held, once it is back but before it goes to the next waiter
+        void release(LongConsumer sample) {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                sample.accept(System.nanoTime() - startNanos);
+                drain();
+            }
+        }
+    }
+
+    private class Waiter {
+
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int LEFT = 2;
+
+        private final MonoSink<Permit> sink;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private volatile Permit permit;
+
+        private Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        private boolean grant() {
+            Permit granted = new Permit();
+            permit = granted; // published before the state, so a concurrent cancel always finds it
+            if (!state.compareAndSet(WAITING, GRANTED)) {
+                return false;
+            }
+            queued.decrementAndGet();
+            sink.success(granted);
+            return true;
+        }
+
+        // timed out or cancelled, only one of leave and grant wins
+        private boolean leave() {
+            if (!state.compareAndSet(WAITING, LEFT)) {
+                return false;
+            }
+            queued.decrementAndGet();
+            waiters.remove(this);
+            return true;
+        }
+
+        // the sink only sees a cancel before the permit was delivered, so a permit granted by then is never used
+        private void cancel() {
+            if (!leave() && state.get() == GRANTED) {
+                permit.release();
+            }
+        }
+    }
+}
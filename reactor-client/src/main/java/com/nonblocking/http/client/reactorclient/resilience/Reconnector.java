@@ -0,0 +1,132 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.StreamSettings;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/* *
+ * Keeps a stream of one endpoint going when its connection drops: the subscriber sees one continuous Flux, while underneath
+ * the stream is requested again after a backoff. Only the connection is resumed, the streams of the service have no position
+ * to resume from, so elements sent while disconnected are missed; the time without elements is published as the gap.
+ *
+ * Dropped connections, connect failures, timeouts and server errors reconnect. Anything else, e.g. a malformed element, fails
+ * the stream, it would only happen again. A stream that completes is complete, it is not requested again.
+ *
+ * Reconnects back off exponentially with full jitter, and the backoff starts over once an element arrived. At most
+ * StreamSettings.maxReconnects reconnects are made within the reconnect window, after that the drop fails the stream, so a
+ * service that keeps dropping connections is not hammered by every subscriber forever.
+ *
+ * Published meters: external.service.stream.reconnects{endpoint, result=attempted|given-up}, external.service.stream.gap{endpoint}
+ * */
+@Slf4j
+public class Reconnector {
+
+    private final String endpoint;
+    private final StreamSettings settings;
+    private final Counter attempted;
+    private final Counter givenUp;
+    private final Timer gap;
+    private final LongAdder reconnects = new LongAdder();
+
+    public Reconnector(String endpoint, StreamSettings settings) {
+        this.endpoint = endpoint;
+        this.settings = settings;
+        Tags tags = Tags.of("endpoint", endpoint);
+        this.attempted = Metrics.counter("external.service.stream.reconnects", tags.and("result", "attempted"));
+        this.givenUp = Metrics.counter("external.service.stream.reconnects", tags.and("result", "given-up"));
+        this.gap = Metrics.timer("external.service.stream.gap", tags);
+    }
+
+    // reconnects attempted by the streams of this reconnector
+    public long reconnects() {
+        return reconnects.sum();
+    }
+
+    /* *
+     * The stream, requested again from the supplier after every drop:
+     *
+     *      reconnector.reconnecting(() -> loadBalancer.stream(client -> client.get().uri("/demo02/name/stream").response(...)))
+     * */
+    public <T> Flux<T> reconnecting(Supplier<Flux<T>> stream) {
+        if (settings.maxReconnects() == 0) {
+            return Flux.defer(stream);
+        }
+        return Flux.defer(() -> {
+            Session session = new Session();
+            return Flux.defer(stream)
+                    .doOnNext(element -> session.received())
+                    .retryWhen(Retry.from(drops -> drops.concatMap(drop -> session.reconnect(drop.failure()))));
+        });
+    }
+
+    private static boolean isDrop(Throwable failure) {
+        // IOException covers dropped connections (PrematureCloseException) and connect failures
+        return failure instanceof IOException || failure instanceof ServerError || failure instanceof TimeoutException
+                || failure instanceof io.netty.handler.timeout.TimeoutException;
+    }
+
+    // the reconnect state of one subscriber. Drops are signalled one at a time, elements arrive on the event loop of the connection
+    private class Session {
+
+        private final Deque<Long> recentReconnects = new ArrayDeque<>();
+        private volatile long lastElementNanos = System.nanoTime();
+        private volatile boolean reconnected;
+        private volatile int dropsInARow;
+
+        private void received() {
+            long now = System.nanoTime();
+            if (reconnected) {
+                reconnected = false;
+                dropsInARow = 0;
+                gap.record(now - lastElementNanos, TimeUnit.NANOSECONDS);
+            }
+            lastElementNanos = now;
+        }
+
+        private Mono<Long> reconnect(Throwable failure) {
+            if (!isDrop(failure)) {
+                return Mono.error(failure);
+            }
+            long now = System.nanoTime();
+            long window = settings.reconnectWindow().toNanos();
+            while (!recentReconnects.isEmpty() && now - recentReconnects.peekFirst() > window) {
+                recentReconnects.pollFirst();
+            }
+            if (recentReconnects.size() >= settings.maxReconnects()) {
+                givenUp.increment();
+                log.warn("{} stream dropped ({}), giving up after {} reconnects within {}", endpoint, failure.toString(), recentReconnects.size(), settings.reconnectWindow());
+                return Mono.error(failure);
+            }
+            recentReconnects.addLast(now);
+            reconnected = true;
+            Duration backoff = backoff(dropsInARow++);
+            attempted.increment();
+            reconnects.increment();
+            log.info("{} stream dropped ({}), reconnecting in {} ms", endpoint, failure.toString(), backoff.toMillis());
+            return Mono.delay(backoff);
+        }
+
+        // full jitter: random below base * 2^drops, capped at the max backoff
+        private Duration backoff(int drops) {
+            long ceiling = Math.min(settings.reconnectMaxBackoff().toNanos(), settings.reconnectBaseBackoff().toNanos() << Math.min(drops, 20));
+            return Duration.ofNanos(ThreadLocalRandom.current().nextLong(Math.max(1, ceiling) + 1));
+        }
+    }
+}
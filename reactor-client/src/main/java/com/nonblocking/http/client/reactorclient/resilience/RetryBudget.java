@@ -0,0 +1,86 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.RetrySettings;
+import com.nonblocking.http.client.reactorclient.exception.BulkheadFullError;
+import com.nonblocking.http.client.reactorclient.exception.CircuitOpenError;
+import com.nonblocking.http.client.reactorclient.exception.ClientError;
+import com.nonblocking.http.client.reactorclient.exception.LimitExceededError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* *
+ * Retry budget shared by all calls of a client, so retries cannot multiply the load during an incident.
+ * Successful exchanges earn a fraction of a token, every retry spends one; when the budget is empty calls fail with their original error.
+ *
+ * Retries wait with exponential backoff and decorrelated jitter: sleep = min(maxBackoff, random(baseBackoff, 3 * previous sleep)).
+ * 400 Bad Request (ClientError), open circuits (CircuitOpenError) and calls rejected by the concurrency limit (LimitExceededError)
+ * or a full bulkhead (BulkheadFullError) are never retried.
+ *
+ * Published counters: external.service.retry{result=granted|denied}
+ * */
+public class RetryBudget {
+
+    private final RetrySettings settings;
+    private final TokenBudget tokens;
+    private final Counter granted = Metrics.counter("external.service.retry", "result", "granted");
+    private final Counter denied = Metrics.counter("external.service.retry", "result", "denied");
+    private final AtomicLong grantedCount = new AtomicLong();
+    private final AtomicLong deniedCount = new AtomicLong();
+
+    public RetryBudget(RetrySettings settings) {
+        this.settings = settings;
+        this.tokens = new TokenBudget(settings.tokensPerSuccess(), settings.maxTokens(), settings.maxTokens());
+    }
+
+    public void onSuccess() {
+        tokens.deposit();
+    }
+
+    public Retry retry() {
+        return Retry.from(signals -> {
+            AtomicLong previousSleep = new AtomicLong(settings.baseBackoff().toNanos()); // per subscription
+            return signals.concatMap(signal -> {
+                Throwable failure = signal.failure();
+                if (failure instanceof ClientError || failure instanceof CircuitOpenError || failure instanceof LimitExceededError
+                        || failure instanceof BulkheadFullError
+                        || signal.totalRetries() >= settings.maxAttempts()) {
+                    return Mono.error(failure);
+                }
+                if (!tokens.tryWithdraw()) {
+                    denied.increment();
+                    deniedCount.incrementAndGet();
+                    return Mono.error(failure);
+                }
+                granted.increment();
+                grantedCount.incrementAndGet();
+                return Mono.delay(nextSleep(previousSleep));
+            });
+        });
+    }
+
+    public long granted() {
+        return grantedCount.get();
+    }
+
+    public long denied() {
+        return deniedCount.get();
+    }
+
+    public double tokens() {
+        return tokens.tokens();
+    }
+
+    private Duration nextSleep(AtomicLong previousSleep) {
+        long base = settings.baseBackoff().toNanos();
+        long upper = Math.max(base + 1, previousSleep.get() * 3);
+        long sleep = Math.min(settings.maxBackoff().toNanos(), ThreadLocalRandom.current().nextLong(base, upper));
+        previousSleep.set(sleep);
+        return Duration.ofNanos(sleep);
+    }
+}
@@ -0,0 +1,88 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* *
+ * Lock-free token bucket refilled by time: holds up to capacity tokens and gets capacity tokens back every refillPeriod,
+ * one token every refillPeriod / capacity, so admission is smooth instead of resetting at window edges.
+ *
+ * The refill is computed lazily from System.nanoTime(), no timer is involved. The whole bucket is one AtomicLong: the
+ * nano time at which the bucket will be full again (the "theoretical arrival time" of the generic cell rate algorithm).
+ * Taking a token pushes it one interval into the future, which is allowed as long as it stays within one full bucket
+ * of now. Refused attempts do not write at all.
+ * */
+public class TokenBucket {
+
+    private final long capacity;
+    private final Duration refillPeriod;
+    private final long intervalNanos;
+    // how far the full-again time may lie ahead of now: the time it takes to refill a whole bucket
+    private final long burstNanos;
+    private final AtomicLong fullAtNanos;
+
+    public TokenBucket(long capacity, Duration refillPeriod) {
+        if (capacity < 1 || refillPeriod.isNegative() || refillPeriod.isZero()) {
+            throw new IllegalArgumentException("invalid token bucket: " + capacity + " per " + refillPeriod);
+        }
+        this.capacity = capacity;
+        this.refillPeriod = refillPeriod;
+        this.intervalNanos = Math.max(1, refillPeriod.toNanos() / capacity);
+        this.burstNanos = intervalNanos * capacity;
+        this.fullAtNanos = new AtomicLong(System.nanoTime());
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public Duration refillPeriod() {
+        return refillPeriod;
+    }
+
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long fullAt = fullAtNanos.get();
+            long next = Math.max(fullAt, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (fullAtNanos.compareAndSet(fullAt, next)) {
+                return true;
+            }
+        }
+    }
+
+    /* *
+     * Takes a token even when there is none, going into debt: the next ones are refused until the debt is refilled.
+     * For reserved capacity that must always be granted but still has to count against the shared bucket.
+     * */
+    public void forceAcquire() {
+        long now = System.nanoTime();
+        long fullAt;
+        do {
+            fullAt = fullAtNanos.get();
+        } while (!fullAtNanos.compareAndSet(fullAt, Math.max(fullAt, now) + intervalNanos));
+    }
+
+    // gives back a token taken by a call that was refused further on; a full bucket stays full
+    public void refund() {
+        long fullAt;
+        do {
+            fullAt = fullAtNanos.get();
+        } while (!fullAtNanos.compareAndSet(fullAt, fullAt - intervalNanos));
+    }
+
+    public long availableTokens() {
+        long now = System.nanoTime();
+        long pending = Math.max(0, fullAtNanos.get() - now);
+        return Math.max(0, burstNanos - pending) / intervalNanos; // 0 as well while in debt
+    }
+
+    // 0 when a token is available right away
+    public long nanosUntilNextToken() {
+        long now = System.nanoTime();
+        return Math.max(0, fullAtNanos.get() + intervalNanos - now - burstNanos);
+    }
+}
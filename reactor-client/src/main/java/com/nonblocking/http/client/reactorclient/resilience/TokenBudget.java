@@ -0,0 +1,50 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/* *
+ * Lock-free token bucket that is refilled by traffic instead of time: every call deposits a fraction of a token and
+ * every extra request (hedge, retry) withdraws a whole one. With tokensPerCall = 0.1, extra requests stay below 10% of calls.
+ * The balance is kept in milli-tokens in one AtomicLong and updated with CAS.
+ * */
+public class TokenBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long depositPerCall;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    public TokenBudget(double tokensPerCall, double maxTokens, double initialTokens) {
+        if (tokensPerCall < 0 || maxTokens < 1 || initialTokens < 0 || initialTokens > maxTokens) {
+            throw new IllegalArgumentException("invalid token budget: " + tokensPerCall + "/" + maxTokens + "/" + initialTokens);
+        }
+        this.depositPerCall = Math.round(tokensPerCall * SCALE);
+        this.maxBalance = Math.round(maxTokens * SCALE);
+        this.balance = new AtomicLong(Math.round(initialTokens * SCALE));
+    }
+
+    public void deposit() {
+        long current;
+        long updated;
+        do {
+            current = balance.get();
+            updated = Math.min(maxBalance, current + depositPerCall);
+        } while (current != updated && !balance.compareAndSet(current, updated));
+    }
+
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    public double tokens() {
+        return (double) balance.get() / SCALE;
+    }
+}
@@ -0,0 +1,172 @@
+package com.nonblocking.http.client.assignment.context;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PermitQueuesTest {
+
+    private static final Duration MAX_WAIT = Duration.ofSeconds(5);
+
+    private static PermitQueues queues(String category, long permits, Duration period, int maxQueue) {
+        return new PermitQueues(new Quotas(QuotaSettings.builder()
+                .period(period)
+                .globalPermits(permits)
+                .categories(Map.of(category, new QuotaSettings.CategoryQuota(1, permits)))
+                .defaultUserPermits(permits)
+                .userPermits(Map.of())
+                .build()), maxQueue);
+    }
+
+    @Test
+    public void call_over_the_limit_waits_for_the_next_token_test() {
+        PermitQueues queues = queues("test-wait", 1, Duration.ofMillis(200), 10);
+        queues.acquire(null, "test-wait", MAX_WAIT).block();
+
+        Duration waited = StepVerifier.create(queues.acquire(null, "test-wait", MAX_WAIT))
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        assertTrue(waited.compareTo(Duration.ofMillis(150)) >= 0, "waited " + waited);
+    }
+
+    @Test
+    public void waiting_longer_than_max_wait_fails_test() {
+        PermitQueues queues = queues("test-max-wait", 1, Duration.ofSeconds(10), 10);
+        queues.acquire(null, "test-max-wait", MAX_WAIT).block();
+
+        StepVerifier.create(queues.acquire(null, "test-max-wait", Duration.ofMillis(50)))
+                .expectErrorMessage("exceeded the given limit, waited PT0.05S")
+                .verify(Duration.ofSeconds(1));
+        assertEquals(0, queues.queued("test-max-wait"));
+    }
+
+    @Test
+    public void full_queue_fails_right_away_test() {
+        PermitQueues queues = queues("test-full", 1, Duration.ofSeconds(10), 1);
+        queues.acquire(null, "test-full", MAX_WAIT).block();
+        Disposable waiting = queues.acquire(null, "test-full", MAX_WAIT).subscribe();
+
+        StepVerifier.create(queues.acquire(null, "test-full", MAX_WAIT))
+                .expectErrorMessage("exceeded the given limit")
+                .verify(Duration.ofMillis(100));
+        assertEquals(1, queues.queued("test-full"));
+
+        waiting.dispose();
+        assertEquals(0, queues.queued("test-full"));
+    }
+
+    @Test
+    public void waiters_are_resumed_in_arrival_order_test() {
+        PermitQueues queues = queues("test-order", 1, Duration.ofMillis(50), 10);
+        queues.acquire(null, "test-order", MAX_WAIT).block();
+
+        StepVerifier.create(Flux.range(1, 4).flatMapSequential(i -> queues.acquire(null, "test-order", MAX_WAIT).thenReturn(i)))
+                .expectNext(1, 2, 3, 4)
+                .expectComplete()
+                .verify(Duration.ofSeconds(2));
+    }
+
+    @Test
+    public void long_standard_queue_does_not_hold_back_prime_test() {
+        // one permit reserved for each category every 100ms, and both may borrow the other's
+        PermitQueues queues = new PermitQueues(new Quotas(QuotaSettings.builder()
+                .period(Duration.ofMillis(100))
+                .globalPermits(2)
+                .categories(Map.of(
+                        "test-standard", new QuotaSettings.CategoryQuota(1, 2),
+                        "test-prime", new QuotaSettings.CategoryQuota(1, 2)))
+                .defaultUserPermits(100)
+                .userPermits(Map.of())
+                .build()), 20);
+        queues.acquire(null, "test-standard", MAX_WAIT).block();
+        queues.acquire(null, "test-standard", MAX_WAIT).block();
+        for (int i = 0; i < 10; i++) {
+            queues.acquire(null, "test-standard", MAX_WAIT).subscribe();
+        }
+
+        StepVerifier.create(queues.acquire(null, "test-prime", MAX_WAIT))
+                .expectComplete()
+                .verify(Duration.ofMillis(300)); // behind ten standard waiters it would take half a second
+        assertTrue(queues.queued("test-standard") >= 7, "standard queued: " + queues.queued("test-standard"));
+    }
+
+    @Test
+    public void unknown_category_is_refused_test() {
+        StepVerifier.create(queues("test-known", 1, Duration.ofSeconds(1), 10).acquire(null, "gold", MAX_WAIT))
+                .expectErrorMessage("exceeded the given limit")
+                .verify();
+    }
+
+    @Test
+    public void user_out_of_permits_does_not_hold_up_the_queue_test() {
+        PermitQueues queues = new PermitQueues(new Quotas(QuotaSettings.builder()
+                .period(Duration.ofSeconds(10))
+                .globalPermits(10)
+                .categories(Map.of("test-head", new QuotaSettings.CategoryQuota(1, 10)))
+                .defaultUserPermits(10)
+                .userPermits(Map.of("mike", 1L))
+                .build()), 10);
+        queues.acquire("mike", "test-head", MAX_WAIT).block();
+        Disposable mike = queues.acquire("mike", "test-head", MAX_WAIT).subscribe();
+
+        StepVerifier.create(queues.acquire("jake", "test-head", MAX_WAIT))
+                .expectComplete()
+                .verify(Duration.ofMillis(200)); // behind mike it would wait ten seconds
+        assertEquals(1, queues.queued("test-head"));
+        mike.dispose();
+    }
+
+    @Test
+    public void waiter_refilled_sooner_moves_the_timer_forward_test() {
+        // mike gets one permit every two seconds, jake one every 100ms
+        PermitQueues queues = new PermitQueues(new Quotas(QuotaSettings.builder()
+                .period(Duration.ofSeconds(2))
+                .globalPermits(100)
+                .categories(Map.of("test-refill", new QuotaSettings.CategoryQuota(1, 100)))
+                .defaultUserPermits(100)
+                .userPermits(Map.of("mike", 1L, "jake", 20L))
+                .build()), 10);
+        queues.acquire("mike", "test-refill", MAX_WAIT).block();
+        for (int i = 0; i < 20; i++) {
+            queues.acquire("jake", "test-refill", MAX_WAIT).block();
+        }
+        Disposable mike = queues.acquire("mike", "test-refill", MAX_WAIT).subscribe();
+
+        StepVerifier.create(queues.acquire("jake", "test-refill", MAX_WAIT))
+                .expectComplete()
+                .verify(Duration.ofMillis(600)); // on mike's timer it would wait two seconds
+        assertEquals(1, queues.queued("test-refill"));
+        mike.dispose();
+    }
+
+    @Test
+    public void category_added_by_a_reload_is_queued_for_test() {
+        Quotas quotas = new Quotas(QuotaSettings.builder()
+                .period(Duration.ofMillis(200))
+                .globalPermits(2)
+                .categories(Map.of("test-before", new QuotaSettings.CategoryQuota(1, 2)))
+                .defaultUserPermits(2)
+                .userPermits(Map.of())
+                .build());
+        PermitQueues queues = new PermitQueues(quotas, 10);
+        quotas.reload(quotas.settings().toBuilder()
+                .categories(Map.of(
+                        "test-before", new QuotaSettings.CategoryQuota(1, 2),
+                        "test-added", new QuotaSettings.CategoryQuota(1, 1)))
+                .build());
+        queues.acquire(null, "test-added", MAX_WAIT).block();
+
+        StepVerifier.create(queues.acquire(null, "test-added", MAX_WAIT))
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+    }
+}
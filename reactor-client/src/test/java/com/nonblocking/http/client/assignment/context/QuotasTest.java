@@ -0,0 +1,143 @@
+package com.nonblocking.http.client.assignment.context;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QuotasTest {
+
+    // standard has 2 of 5 permits reserved and no ceiling above, prime 3 and may borrow up to 5
+    private static final QuotaSettings SETTINGS = QuotaSettings.defaults().toBuilder()
+            .period(Duration.ofHours(1))
+            .build();
+
+    @Test
+    public void prime_borrows_what_standard_leaves_idle_test() {
+        Quotas quotas = new Quotas(SETTINGS);
+
+        assertEquals(5, acquired(quotas, "mike", "prime", 10));
+        assertEquals(2, acquired(quotas, "sam", "standard", 10), "standard still gets its reserve");
+    }
+
+    @Test
+    public void reserve_is_granted_even_after_borrowing_test() {
+        Quotas quotas = new Quotas(SETTINGS);
+        assertEquals(5, acquired(quotas, "mike", "prime", 10));
+
+        assertTrue(quotas.tryAcquire("sam", "standard"));
+        assertTrue(quotas.tryAcquire("sam", "standard"));
+        assertFalse(quotas.tryAcquire("sam", "standard"));
+    }
+
+    @Test
+    public void standard_cannot_borrow_above_its_ceiling_test() {
+        Quotas quotas = new Quotas(SETTINGS);
+
+        assertEquals(2, acquired(quotas, "sam", "standard", 10));
+        assertEquals(3, acquired(quotas, "mike", "prime", 10));
+    }
+
+    @Test
+    public void user_quota_caps_a_single_user_test() {
+        Quotas quotas = new Quotas(SETTINGS.toBuilder().userPermits(Map.of("mike", 1L)).build());
+
+        assertEquals(1, acquired(quotas, "mike", "prime", 10));
+        assertEquals(4, acquired(quotas, "jake", "prime", 10), "jake gets the rest, borrowed ones included");
+    }
+
+    @Test
+    public void unused_grant_is_refunded_on_every_level_test() {
+        Quotas quotas = new Quotas(SETTINGS.toBuilder().userPermits(Map.of("sam", 1L)).build());
+        Quotas.Grant grant = quotas.grant("sam", "standard");
+        assertEquals(Quotas.Grant.RESERVED, grant);
+        assertEquals(Quotas.Grant.USER_REFUSED, quotas.grant("sam", "standard"));
+
+        quotas.refund("sam", "standard", grant);
+
+        assertEquals(5, acquired(quotas, null, "prime", 10), "the global pool has its permit back");
+        assertTrue(quotas.tryAcquire("sam", "standard"), "so have sam and the standard reserve");
+    }
+
+    @Test
+    public void refused_calls_give_their_permits_back_test() {
+        Quotas quotas = new Quotas(SETTINGS.toBuilder().userPermits(Map.of("sam", 3L)).build());
+        assertEquals(2, acquired(quotas, "sam", "standard", 10)); // 8 refusals by the standard ceiling
+
+        assertTrue(quotas.tryAcquire("sam", "prime"), "the refusals did not use up sam's third permit");
+        assertFalse(quotas.tryAcquire("sam", "prime"));
+    }
+
+    @Test
+    public void unknown_category_is_refused_test() {
+        Quotas quotas = new Quotas(SETTINGS);
+
+        assertFalse(quotas.tryAcquire("sam", "gold"));
+        assertFalse(quotas.tryAcquire("sam", null));
+    }
+
+    @Test
+    public void reload_keeps_unchanged_buckets_and_applies_new_quotas_test() {
+        Quotas quotas = new Quotas(SETTINGS);
+        assertEquals(2, acquired(quotas, "sam", "standard", 10));
+
+        quotas.reload(SETTINGS.toBuilder().defaultUserPermits(6).build()); // only the user quota changed
+        assertFalse(quotas.tryAcquire("sam", "standard"), "standard stays drained");
+
+        quotas.reload(SETTINGS.toBuilder()
+                .globalPermits(10)
+                .categories(Map.of(
+                        "standard", new QuotaSettings.CategoryQuota(1, 5),
+                        "prime", new QuotaSettings.CategoryQuota(1, 10)))
+                .build());
+        assertEquals(5, acquired(quotas, "jake", "standard", 10));
+    }
+
+    @Test
+    public void idle_users_are_forgotten_test() throws InterruptedException {
+        Quotas quotas = new Quotas(SETTINGS.toBuilder().period(Duration.ofMillis(20)).globalPermits(10_000)
+                .categories(Map.of("standard", new QuotaSettings.CategoryQuota(1, 10_000)))
+                .build());
+        for (int i = 0; i < 1024; i++) {
+            assertTrue(quotas.tryAcquire("user-" + i, "standard"));
+        }
+        assertEquals(1024, quotas.users());
+
+        Thread.sleep(100); // their buckets are full again
+        assertTrue(quotas.tryAcquire("sam", "standard"));
+
+        assertEquals(1, quotas.users(), "the next new user swept the idle ones");
+    }
+
+    @Test
+    public void check_does_not_allocate_test() {
+        Quotas quotas = new Quotas(SETTINGS.toBuilder().globalPermits(1_000_000)
+                .categories(Map.of("standard", new QuotaSettings.CategoryQuota(1, 1_000_000)))
+                .defaultUserPermits(1_000_000)
+                .build());
+        acquired(quotas, "sam", "standard", 10_000); // the user's bucket is created, and the path warmed up
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        int acquired = acquired(quotas, "sam", "standard", 10_000);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(10_000, acquired);
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes for 10000 checks");
+    }
+
+    private static int acquired(Quotas quotas, String user, String category, int attempts) {
+        int acquired = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (quotas.tryAcquire(user, category)) {
+                acquired++;
+            }
+        }
+        return acquired;
+    }
+}
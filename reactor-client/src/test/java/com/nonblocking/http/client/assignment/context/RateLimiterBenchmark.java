@@ -0,0 +1,115 @@
+package com.nonblocking.http.client.assignment.context;
+
+import com.nonblocking.http.client.reactorclient.resilience.TokenBucket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/* *
+ * The former RateLimiter (synchronized canAllow over a synchronized map, reset by a Flux.interval) vs. the token buckets,
+ * with 16 threads hammering one category.
+ *  - admitting:  buckets large enough to never run dry, every call takes a token (a write per call, contended CAS vs. monitor).
+ *  - rejecting:  the demo limits, drained right away, so nearly every call is refused (the token bucket only reads then).
+ *  - quotas_rejecting:  the whole quota pass (user, category, reserve and global buckets) of a private Quotas, drained the same way.
+ * Not part of the test run: run main() from the IDE (or with the test classpath after mvn test-compile).
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private final SynchronizedLimiter synchronizedAdmitting = new SynchronizedLimiter(Integer.MAX_VALUE);
+    private final TokenBucket tokenBucketAdmitting = new TokenBucket(Long.MAX_VALUE / 2, Duration.ofDays(365));
+    private final SynchronizedLimiter synchronizedRejecting = new SynchronizedLimiter(2);
+    private final TokenBucket tokenBucketRejecting = drained(new TokenBucket(2, Duration.ofSeconds(5)));
+
+    @Benchmark
+    public boolean synchronized_admitting() {
+        return synchronizedAdmitting.canAllow("standard");
+    }
+
+    @Benchmark
+    public boolean token_bucket_admitting() {
+        return tokenBucketAdmitting.tryAcquire();
+    }
+
+    @Benchmark
+    public boolean synchronized_rejecting() {
+        return synchronizedRejecting.canAllow("standard");
+    }
+
+    @Benchmark
+    public boolean token_bucket_rejecting() {
+        return tokenBucketRejecting.tryAcquire();
+    }
+
+    @Benchmark
+    public boolean quotas_rejecting(QuotaPass pass) {
+        return pass.quotas.tryAcquire(null, "standard");
+    }
+
+    private static TokenBucket drained(TokenBucket bucket) {
+        while (bucket.tryAcquire()) {
+            // empty until the next refill, five seconds on
+        }
+        return bucket;
+    }
+
+    // its own Quotas, so the benchmark does not touch the limiter shared by the rest of the process
+    @State(Scope.Benchmark)
+    public static class QuotaPass {
+
+        private final Quotas quotas = new Quotas(QuotaSettings.defaults());
+
+        @Setup
+        public void drain() {
+            while (quotas.tryAcquire(null, "standard")) {
+                // the demo limits, used up
+            }
+        }
+    }
+
+    // the limiter as it was, minus the refresh: attempts per category behind one monitor
+    private static class SynchronizedLimiter {
+
+        private final Map<String, Integer> categoryAttempts = Collections.synchronizedMap(new HashMap<>());
+
+        private SynchronizedLimiter(int attempts) {
+            categoryAttempts.put("standard", attempts);
+        }
+
+        private synchronized boolean canAllow(String category) {
+            Integer attempt = categoryAttempts.getOrDefault(category, 0);
+            if (attempt > 0) {
+                categoryAttempts.put(category, attempt - 1);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RateLimiterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
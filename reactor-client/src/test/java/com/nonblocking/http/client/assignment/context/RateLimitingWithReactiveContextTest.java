@@ -1,11 +1,18 @@
 package com.nonblocking.http.client.assignment.context;
 
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
 import com.nonblocking.http.client.reactorclient.impl.ExternalServiceClient;
 import com.nonblocking.http.client.util.Util;
+import com.nonblocking.http.stub.ExternalServiceStub;
+import com.nonblocking.http.stub.StubSettings;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 import reactor.util.context.Context;
 
+import java.time.Duration;
+
 /**
  * Rate limiting implementation using Reactive Context
  * Imagine we are calling a book service. It's a paid service like Kindle Unlimited. So we would want to rate limit it.
@@ -31,4 +38,22 @@ public class RateLimitingWithReactiveContextTest {
         }
     }
 
+    /**
+     * Queueing mode: calls over the limit are delayed until the category has a token again, instead of failing.
+     * A standard user gets a token every 2.5 seconds, so the third of three books arrives about 2.5 seconds after the first two.
+     */
+    @Test
+    public void queue_book_service_calls_test() {
+        try (ExternalServiceStub stub = ExternalServiceStub.start(0, StubSettings.defaults())) {
+            ExternalServiceClient stubClient = new ExternalServiceClient(ClientSettings.defaults().toBuilder().baseUrl(stub.baseUrl()).build());
+
+            StepVerifier.create(Flux.range(1, 3)
+                            .flatMap(i -> stubClient.getBookWhenAllowed(Duration.ofSeconds(5)).contextWrite(Context.of("user", "sam"))))
+                    .expectNextCount(3)
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(8));
+            stubClient.dispose();
+        }
+    }
+
 }
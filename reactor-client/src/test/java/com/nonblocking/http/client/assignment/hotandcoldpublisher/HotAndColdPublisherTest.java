@@ -23,10 +23,9 @@ public class HotAndColdPublisherTest {
 
     @Test
     public void productServiceTest() {
-        Flux<String> ordersStream = client.getDemo04OrdersStream();
+        Flux<Order> ordersStream = client.getDemo04Orders(); // already framed and parsed into orders by the client
 
         Flux<Order> orderFlux = ordersStream
-                .map(this::parse)
                 .doOnNext(order -> log.info("{}", order))
                 .publish()
                 .refCount(2);
@@ -47,9 +46,4 @@ public class HotAndColdPublisherTest {
         Util.sleepSeconds(60);
     }
 
-    private Order parse(String message) {
-        String[] strings = message.split(":");
-        return new Order(strings[0], strings[1], Double.parseDouble(strings[2]), Integer.parseInt(strings[3]));
-    }
-
 }
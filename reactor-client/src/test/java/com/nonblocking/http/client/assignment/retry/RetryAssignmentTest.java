@@ -41,6 +41,21 @@ public class RetryAssignmentTest {
         Util.sleepSeconds(6);
     }
 
+    /* *
+     * Same as above, but with the client-wide retry budget: jittered backoff, never retries 400 and stops retrying when the budget is exhausted.
+     * */
+    @Test
+    public void retryOn500WithClientRetryBudgetAssignmentTest() {
+        externalServiceClient.getProductNameForRetry(2)
+                .retryWhen(externalServiceClient.retry())
+                .subscribe(country -> log.info("product received: {}", country),
+                        err -> log.error("error occurred: {}", err.getMessage()),
+                        () -> log.info("Completed"));
+
+        Util.sleepSeconds(6);
+        log.info("retries granted: {}, denied: {}", externalServiceClient.retryBudget().granted(), externalServiceClient.retryBudget().denied());
+    }
+
     private Retry retryOnServerError() {
         return Retry.fixedDelay(10, Duration.ofMillis(400))
                 .filter(ex -> ServerError.class.equals(ex.getClass()))
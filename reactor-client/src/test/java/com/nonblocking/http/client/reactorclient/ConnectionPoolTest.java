@@ -0,0 +1,87 @@
+package com.nonblocking.http.client.reactorclient;
+
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.config.PoolSettings;
+import com.nonblocking.http.client.reactorclient.impl.ExternalServiceClient;
+import com.nonblocking.http.stub.ExternalServiceStub;
+import com.nonblocking.http.stub.Route;
+import com.nonblocking.http.stub.StubSettings;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.internal.shaded.reactor.pool.PoolAcquirePendingLimitException;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class ConnectionPoolTest {
+
+    private ExternalServiceStub stub;
+
+    @BeforeEach
+    public void setUp() {
+        stub = ExternalServiceStub.start(0, StubSettings.defaults()
+                .with(Route.DEMO01_PRODUCT, route -> route.latency(Duration.ofMillis(300))));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stub.close();
+    }
+
+    /* *
+     * One connection and one pending slot: the third concurrent request cannot even queue and fails fast.
+     * */
+    @Test
+    public void pending_acquire_limit_rejects_excess_requests_test() {
+        ExternalServiceClient client = client(PoolSettings.defaults().toBuilder()
+                .name("pending-limit")
+                .maxConnections(1)
+                .pendingAcquireMaxCount(1)
+                .build());
+
+        StepVerifier.create(Flux.range(1, 3)
+                        .flatMap(i -> client.getProductName(i).onErrorResume(PoolAcquirePendingLimitException.class, ex -> Mono.just("rejected")))
+                        .filter("rejected"::equals)
+                        .count())
+                .expectNext(1L)
+                .verifyComplete();
+
+        client.dispose();
+    }
+
+    @Test
+    public void pool_gauges_are_published_per_remote_address_test() {
+        ExternalServiceClient client = client(PoolSettings.defaults().toBuilder()
+                .name("gauges")
+                .leasingStrategy(PoolSettings.LeasingStrategy.LIFO)
+                .build());
+
+        StepVerifier.create(client.getProductName(1))
+                .expectNext("product-1")
+                .verifyComplete();
+
+        Gauge idle = Metrics.globalRegistry.find("reactor.netty.connection.provider.idle.connections")
+                .tag("name", "gauges")
+                .gauge();
+        assertNotNull(idle);
+        assertNotNull(idle.getId().getTag("remote.address"));
+        assertNotNull(Metrics.globalRegistry.find("reactor.netty.connection.provider.active.connections").tag("name", "gauges").gauge());
+        assertNotNull(Metrics.globalRegistry.find("reactor.netty.connection.provider.pending.connections").tag("name", "gauges").gauge());
+
+        client.dispose();
+    }
+
+    private ExternalServiceClient client(PoolSettings pool) {
+        return new ExternalServiceClient(ClientSettings.defaults().toBuilder()
+                .baseUrl(stub.baseUrl())
+                .pool(pool)
+                .build());
+    }
+}
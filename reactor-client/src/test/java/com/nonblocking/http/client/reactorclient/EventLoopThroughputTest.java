@@ -0,0 +1,80 @@
+package com.nonblocking.http.client.reactorclient;
+
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.config.LoopSettings;
+import com.nonblocking.http.client.reactorclient.impl.ExternalServiceClient;
+import com.nonblocking.http.stub.ExternalServiceStub;
+import com.nonblocking.http.stub.Route;
+import com.nonblocking.http.stub.StubSettings;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/* *
+ * Throughput of a single selector thread vs. one event loop per core (native epoll where available),
+ * measured against the local stand-in of the external service with zero latency, so the client is the bottleneck.
+ * The numbers are logged, not asserted, as they depend on the machine.
+ * */
+@Slf4j
+public class EventLoopThroughputTest {
+
+    private static final int REQUESTS = 2_000;
+    private static final int CONCURRENCY = 256;
+
+    private ExternalServiceStub stub;
+
+    @BeforeEach
+    public void setUp() {
+        stub = ExternalServiceStub.start(0, StubSettings.defaults()
+                .with(Route.DEMO06_COUNTRY, route -> route.latency(Duration.ZERO)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    public void single_loop_vs_core_scaled_native_loops_throughput_test() {
+        LoopSettings single = LoopSettings.defaults().toBuilder().workerCount(1).preferNative(false).build();
+        LoopSettings scaled = LoopSettings.defaults();
+
+        double singleThroughput = throughput(single);
+        double scaledThroughput = throughput(scaled);
+
+        log.info("1 NIO loop: {} req/s, {} loops (native: {}): {} req/s",
+                Math.round(singleThroughput), scaled.workerCount(), LoopResources.hasNativeSupport(), Math.round(scaledThroughput));
+    }
+
+    private double throughput(LoopSettings loop) {
+        ExternalServiceClient client = new ExternalServiceClient(ClientSettings.defaults().toBuilder()
+                .baseUrl(stub.baseUrl())
+                .loop(loop)
+                .pool(ClientSettings.defaults().pool().toBuilder().name("throughput-" + loop.workerCount()).maxConnections(CONCURRENCY).build())
+                .build());
+        try {
+            // warm up connections and JIT before measuring
+            run(client, REQUESTS / 5);
+            long start = System.nanoTime();
+            run(client, REQUESTS);
+            return REQUESTS / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            client.dispose();
+        }
+    }
+
+    private void run(ExternalServiceClient client, int requests) {
+        Long received = Flux.range(1, requests)
+                .flatMap(i -> client.getCountryNameForRepeat(), CONCURRENCY)
+                .count()
+                .block(Duration.ofMinutes(1));
+        assertEquals(requests, received);
+    }
+}
@@ -42,7 +42,7 @@ public class ExternalServiceClientTest {
                     () -> log.info("Completed"));
         }
 
-        // If you observe clearly, all 5 requests are executed by a single thread and all 5 requests happened more or less at the same time.
+        // If you observe clearly, all 5 requests are executed by a handful of event loop threads (one per core, not one per request) and all 5 requests happened more or less at the same time.
         // That is why order is not maintained. This is exactly what non-blocking IO is.
 
         Util.sleepSeconds(2);
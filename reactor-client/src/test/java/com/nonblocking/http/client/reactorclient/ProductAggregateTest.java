@@ -0,0 +1,92 @@
+package com.nonblocking.http.client.reactorclient;
+
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.impl.ExternalServiceClient;
+import com.nonblocking.http.client.reactorclient.model.ProductAggregate;
+import com.nonblocking.http.stub.ExternalServiceStub;
+import com.nonblocking.http.stub.Route;
+import com.nonblocking.http.stub.StubSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* *
+ * Unlike ZipAssignmentTest, a slow review service does not hold back the whole product: it is just absent, as timed out.
+ * */
+public class ProductAggregateTest {
+
+    private ExternalServiceStub stub;
+    private ExternalServiceClient client;
+
+    @BeforeEach
+    public void setUp() {
+        stub = ExternalServiceStub.start(0, StubSettings.defaults()
+                .with(Route.DEMO05_PRODUCT, route -> route.latency(Duration.ofMillis(50)))
+                .with(Route.DEMO05_PRICE, route -> route.latency(Duration.ofMillis(50)))
+                .with(Route.DEMO05_REVIEW, route -> route.latency(Duration.ofSeconds(1))));
+        client = new ExternalServiceClient(ClientSettings.defaults().toBuilder().baseUrl(stub.baseUrl()).build());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.dispose();
+        stub.close();
+    }
+
+    @Test
+    public void slow_part_is_absent_after_deadline_test() {
+        client.getProductAggregate(1, Duration.ofSeconds(3)).block(); // opens the connections, so only the stub latency counts
+
+        StepVerifier.create(client.getProductAggregate(3, Duration.ofMillis(300)))
+                .assertNext(product -> {
+                    assertEquals(ProductAggregate.Part.ok("product-3"), product.productName());
+                    assertEquals(ProductAggregate.Part.ok("39"), product.price());
+                    assertEquals(ProductAggregate.Part.absent(ProductAggregate.Status.TIMED_OUT), product.review());
+                })
+                .expectComplete()
+                .verify(Duration.ofMillis(800));
+    }
+
+    @Test
+    public void failed_part_is_told_apart_from_a_slow_one_test() {
+        try (ExternalServiceStub failing = ExternalServiceStub.start(0, StubSettings.defaults()
+                .with(Route.DEMO05_PRODUCT, route -> route.latency(Duration.ofMillis(50)))
+                .with(Route.DEMO05_PRICE, route -> route.latency(Duration.ofMillis(50)).errorRate(1.0))
+                .with(Route.DEMO05_REVIEW, route -> route.latency(Duration.ofSeconds(3))))) {
+            ExternalServiceClient client = new ExternalServiceClient(ClientSettings.defaults().toBuilder().baseUrl(failing.baseUrl()).build());
+
+            StepVerifier.create(client.getProductAggregate(3, Duration.ofSeconds(1)))
+                    .assertNext(product -> {
+                        assertEquals(ProductAggregate.Status.OK, product.productName().status());
+                        assertEquals(ProductAggregate.Part.absent(ProductAggregate.Status.FAILED), product.price());
+                        assertEquals(ProductAggregate.Status.TIMED_OUT, product.review().status());
+                        assertFalse(product.isComplete());
+                    })
+                    .verifyComplete();
+            client.dispose();
+        }
+    }
+
+    @Test
+    public void all_parts_present_within_deadline_test() {
+        StepVerifier.create(client.getProductAggregate(3, Duration.ofSeconds(3)))
+                .assertNext(product -> assertTrue(product.isComplete()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void bulk_aggregates_keep_page_order_test() {
+        StepVerifier.create(client.getProductAggregates(Flux.range(1, 10), Duration.ofMillis(300), 4)
+                        .map(ProductAggregate::productId))
+                .expectNext(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,150 @@
+package com.nonblocking.http.client.reactorclient.balancer;
+
+import com.nonblocking.http.client.reactorclient.config.CircuitBreakerSettings;
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.config.LoadBalancerSettings;
+import com.nonblocking.http.client.reactorclient.impl.ExternalServiceClient;
+import com.nonblocking.http.stub.ExternalServiceStub;
+import com.nonblocking.http.stub.Route;
+import com.nonblocking.http.stub.StubSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadBalancerTest {
+
+    private final List<ExternalServiceStub> stubs = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        stubs.forEach(ExternalServiceStub::close);
+    }
+
+    @Test
+    public void replica_with_fewer_outstanding_requests_gets_most_of_the_traffic_test() {
+        ExternalServiceStub fast = stub(Duration.ofMillis(10), 0);
+        ExternalServiceStub slow = stub(Duration.ofMillis(300), 0);
+        LoadBalancer loadBalancer = new LoadBalancer("test", List.of(fast.baseUrl(), slow.baseUrl()), HttpClient.create(), LoadBalancerSettings.defaults());
+        Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+        StepVerifier.create(Flux.range(1, 200)
+                        .flatMap(i -> loadBalancer.exchange(client -> country(client, requests)), 20)
+                        .count())
+                .expectNext(200L)
+                .verifyComplete();
+
+        int toFast = requests.get(fast.baseUrl()).get();
+        assertTrue(toFast > 150, "fast replica got " + toFast + " of 200");
+        assertTrue(loadBalancer.replicas().stream().allMatch(replica -> replica.outstanding() == 0));
+    }
+
+    @Test
+    public void replica_failing_with_server_errors_is_ejected_test() {
+        ExternalServiceStub failing = stub(Duration.ZERO, 1.0);
+        ExternalServiceStub healthy = stub(Duration.ZERO, 0);
+        ExternalServiceClient client = client(List.of(failing.baseUrl(), healthy.baseUrl()), LoadBalancerSettings.defaults().toBuilder()
+                .consecutiveFailures(3)
+                .build());
+
+        StepVerifier.create(Flux.range(1, 50)
+                        .concatMap(i -> client.getCountryNameForRepeat().map(name -> true).onErrorReturn(false))
+                        .filter(succeeded -> !succeeded)
+                        .count())
+                .expectNext(3L)
+                .verifyComplete();
+
+        Replica ejected = client.loadBalancer().replicas().get(0);
+        assertFalse(ejected.isAdmitted());
+        assertTrue(client.loadBalancer().replicas().get(1).isAdmitted());
+        client.dispose();
+    }
+
+    @Test
+    public void unreachable_replica_is_ejected_test() throws IOException {
+        ExternalServiceStub healthy = stub(Duration.ZERO, 0);
+        ExternalServiceClient client = client(List.of("http://localhost:" + closedPort(), healthy.baseUrl()), LoadBalancerSettings.defaults().toBuilder()
+                .consecutiveFailures(2)
+                .build());
+
+        StepVerifier.create(Flux.range(1, 30)
+                        .concatMap(i -> client.getCountryNameForRepeat().map(name -> true).onErrorReturn(false))
+                        .filter(succeeded -> !succeeded)
+                        .count())
+                .expectNext(2L)
+                .verifyComplete();
+
+        assertFalse(client.loadBalancer().replicas().get(0).isAdmitted());
+        client.dispose();
+    }
+
+    @Test
+    public void re_admitted_replica_slow_starts_test() throws InterruptedException {
+        LoadBalancerSettings settings = LoadBalancerSettings.defaults().toBuilder()
+                .consecutiveFailures(1)
+                .ejectionTime(Duration.ofMillis(100))
+                .slowStart(Duration.ofSeconds(10))
+                .build();
+        LoadBalancer loadBalancer = new LoadBalancer("test", List.of("http://replica-a", "http://replica-b"), HttpClient.create(), settings);
+        Replica replica = loadBalancer.replicas().get(0);
+        Replica other = loadBalancer.replicas().get(1);
+        assertEquals(1.0, replica.load(System.nanoTime()));
+
+        replica.failed();
+        assertFalse(replica.isAdmitted());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(other, loadBalancer.choose());
+        }
+
+        Thread.sleep(150);
+        assertTrue(replica.isAdmitted());
+        // counted as if it had ten times the requests: an idle replica still loses against one with a few outstanding
+        assertTrue(replica.load(System.nanoTime()) > 9);
+        for (int i = 0; i < 5; i++) {
+            other.started();
+        }
+        assertEquals(other, loadBalancer.choose());
+    }
+
+    private static Mono<String> country(HttpClient client, Map<String, AtomicInteger> requests) {
+        requests.computeIfAbsent(client.configuration().baseUrl(), baseUrl -> new AtomicInteger()).incrementAndGet();
+        return client.get()
+                .uri("/demo06/country")
+                .responseSingle((response, body) -> body.asString());
+    }
+
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private ExternalServiceStub stub(Duration latency, double errorRate) {
+        ExternalServiceStub stub = ExternalServiceStub.start(0, StubSettings.defaults()
+                .with(Route.DEMO06_COUNTRY, route -> route.latency(latency).errorRate(errorRate)));
+        stubs.add(stub);
+        return stub;
+    }
+
+    private static ExternalServiceClient client(List<String> replicas, LoadBalancerSettings loadBalancer) {
+        return new ExternalServiceClient(ClientSettings.defaults().toBuilder()
+                .loadBalancer(loadBalancer.toBuilder().replicas(replicas).build())
+                .circuitBreaker(CircuitBreakerSettings.defaults().toBuilder().enabled(false).build())
+                .build());
+    }
+}
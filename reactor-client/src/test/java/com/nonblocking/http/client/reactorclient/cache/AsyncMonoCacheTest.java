@@ -0,0 +1,119 @@
+package com.nonblocking.http.client.reactorclient.cache;
+
+import com.nonblocking.http.client.reactorclient.config.CacheSettings;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncMonoCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void second_lookup_is_a_hit_test() {
+        AsyncMonoCache<Integer, String> cache = new AsyncMonoCache<>("test.hit", CacheSettings.defaults());
+
+        StepVerifier.create(cache.get(1, () -> load(1)).then(cache.get(1, () -> load(1))))
+                .expectNext("product-1")
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    public void concurrent_subscribers_share_one_load_test() {
+        AsyncMonoCache<Integer, String> cache = new AsyncMonoCache<>("test.share", CacheSettings.defaults());
+
+        StepVerifier.create(Flux.range(1, 20).flatMap(i -> cache.get(1, () -> load(1))).distinct())
+                .expectNext("product-1")
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void empty_results_are_not_cached_test() {
+        AsyncMonoCache<Integer, String> cache = new AsyncMonoCache<>("test.empty", CacheSettings.defaults());
+
+        cache.get(5, this::loadEmpty).block();
+        cache.get(5, this::loadEmpty).block();
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void expired_and_invalidated_entries_are_reloaded_test() {
+        CacheSettings settings = CacheSettings.defaults().toBuilder().ttl(Duration.ofMillis(100)).build();
+        AsyncMonoCache<Integer, String> cache = new AsyncMonoCache<>("test.ttl", settings);
+
+        cache.get(1, () -> load(1)).block();
+        Mono.delay(Duration.ofMillis(150)).block();
+        cache.get(1, () -> load(1)).block();
+        cache.invalidate(1);
+        cache.get(1, () -> load(1)).block();
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void load_is_cancelled_once_every_subscriber_cancelled_test() {
+        AsyncMonoCache<Integer, String> cache = new AsyncMonoCache<>("test.cancel", CacheSettings.defaults());
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Mono<String> lookup = cache.get(1, () -> load(1).doOnCancel(() -> cancelled.set(true)));
+
+        Disposable first = lookup.subscribe();
+        Disposable second = lookup.subscribe();
+        first.dispose();
+        assertFalse(cancelled.get());
+
+        second.dispose();
+        assertTrue(cancelled.get());
+        assertEquals(0, cache.loading());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void load_runs_in_the_subscriber_context_test() {
+        AsyncMonoCache<Integer, String> cache = new AsyncMonoCache<>("test.context", CacheSettings.defaults());
+
+        StepVerifier.create(cache.get(1, () -> Mono.deferContextual(ctx -> Mono.just(ctx.getOrDefault("user", "none"))))
+                        .contextWrite(Context.of("user", "sam")))
+                .expectNext("sam")
+                .verifyComplete();
+    }
+
+    @Test
+    public void disabled_cache_always_loads_test() {
+        AsyncMonoCache<Integer, String> cache = new AsyncMonoCache<>("test.disabled", CacheSettings.defaults().toBuilder().enabled(false).build());
+
+        cache.get(1, () -> load(1)).block();
+        cache.get(1, () -> load(1)).block();
+
+        assertEquals(2, loads.get());
+    }
+
+    private Mono<String> load(int productId) {
+        return Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return "product-" + productId;
+        }).delayElement(Duration.ofMillis(50));
+    }
+
+    private Mono<String> loadEmpty() {
+        return Mono.fromRunnable(loads::incrementAndGet);
+    }
+}
@@ -0,0 +1,250 @@
+package com.nonblocking.http.client.reactorclient.cache;
+
+import com.nonblocking.http.client.reactorclient.config.DiskCacheSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class DiskCacheTest {
+
+    @TempDir
+    private Path directory;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void stored_response_is_read_back_without_a_load_test() {
+        try (DiskCache cache = new DiskCache("test.read", settings())) {
+            cache.write("/demo01/product/1", "product-1");
+
+            StepVerifier.create(cache.get("/demo01/product/1", () -> load("product-1")))
+                    .expectNext("product-1")
+                    .verifyComplete();
+
+            assertEquals(0, loads.get());
+            assertEquals(1, cache.hits());
+        }
+    }
+
+    @Test
+    public void loaded_response_is_stored_in_the_background_test() {
+        try (DiskCache cache = new DiskCache("test.store", settings())) {
+            StepVerifier.create(cache.get("/demo01/product/2", () -> load("product-2")))
+                    .expectNext("product-2")
+                    .verifyComplete();
+
+            Mono.delay(Duration.ofMillis(200)).block();
+            assertEquals("product-2", cache.read("/demo01/product/2"));
+            assertEquals(1, loads.get());
+        }
+    }
+
+    @Test
+    public void entries_survive_a_restart_test() {
+        try (DiskCache cache = new DiskCache("test.restart", settings())) {
+            for (int i = 1; i <= 20; i++) {
+                cache.write("/demo01/product/" + i, "product-" + i);
+            }
+            cache.write("/demo01/product/1", "renamed-1");
+        }
+
+        try (DiskCache cache = new DiskCache("test.restart", settings())) {
+            assertEquals(20, cache.size());
+            assertEquals("renamed-1", cache.read("/demo01/product/1"));
+            assertEquals("product-20", cache.read("/demo01/product/20"));
+            cache.write("/demo01/product/21", "product-21");
+            assertEquals(1, cache.segments()); // appended to the segment it found
+        }
+    }
+
+    // a crash in the middle of a write leaves a torn record behind, the warm load keeps everything before it
+    @Test
+    public void torn_record_ends_the_warm_load_of_its_segment_test() throws IOException {
+        try (DiskCache cache = new DiskCache("test.torn", settings())) {
+            cache.write("/demo01/product/1", "product-1");
+            cache.write("/demo01/product/2", "product-2");
+        }
+        Path segment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // the last byte of the second record's value
+            int secondRecordEnd = 8 + 2 * (20 + "/demo01/product/1".length() + "product-1".length());
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), secondRecordEnd - 1);
+        }
+
+        try (DiskCache cache = new DiskCache("test.torn", settings())) {
+            assertEquals("product-1", cache.read("/demo01/product/1"));
+            assertNull(cache.read("/demo01/product/2"));
+        }
+    }
+
+    @Test
+    public void expired_entries_are_not_served_test() {
+        try (DiskCache cache = new DiskCache("test.ttl", settings().toBuilder().ttl(Duration.ofMillis(100)).build())) {
+            cache.write("/demo01/product/1", "product-1");
+            Mono.delay(Duration.ofMillis(150)).block();
+
+            assertNull(cache.read("/demo01/product/1"));
+            assertEquals(0, cache.size());
+        }
+    }
+
+    // four segments fit on disk: filling a fifth deletes the one read longest ago, not the oldest one
+    @Test
+    public void least_recently_read_segment_is_evicted_test() throws IOException {
+        DiskCacheSettings settings = settings().toBuilder().maxDiskBytes(4 * 4096).build();
+        try (DiskCache cache = new DiskCache("test.evict", settings)) {
+            String value = "x".repeat(1000);
+            for (int i = 0; i < 12; i++) {
+                cache.write("/key/" + i, value); // three records per segment
+            }
+            assertEquals(4, cache.segments());
+            Mono.delay(Duration.ofMillis(5)).block();
+            cache.read("/key/0"); // the first segment is the most recently read now
+
+            for (int i = 12; i < 15; i++) {
+                cache.write("/key/" + i, value);
+            }
+
+            assertEquals(4, cache.segments());
+            assertTrue(cache.diskBytes() <= settings.maxDiskBytes());
+            assertEquals(4, segmentFiles().size());
+            assertEquals(value, cache.read("/key/0"));
+            assertNull(cache.read("/key/3")); // the second segment went
+            assertEquals(value, cache.read("/key/14"));
+        }
+    }
+
+    @Test
+    public void concurrent_reads_from_many_threads_test() {
+        try (DiskCache cache = new DiskCache("test.concurrent", settings())) {
+            for (int i = 0; i < 100; i++) {
+                cache.write("/demo01/product/" + i, "product-" + i);
+            }
+
+            StepVerifier.create(Flux.range(0, 10_000)
+                            .parallel(4)
+                            .runOn(Schedulers.parallel())
+                            .map(i -> cache.read("/demo01/product/" + i % 100).equals("product-" + i % 100))
+                            .sequential()
+                            .all(matches -> matches))
+                    .expectNext(true)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    public void directory_is_used_by_one_cache_at_a_time_test() {
+        try (DiskCache cache = new DiskCache("test.lock", settings())) {
+            IllegalStateException error = assertThrows(IllegalStateException.class, () -> new DiskCache("test.lock", settings()));
+            assertTrue(error.getMessage().contains("in this process"), error.getMessage());
+        }
+        new DiskCache("test.lock", settings()).close(); // the refused one left no lock behind
+    }
+
+    @Test
+    public void invalidated_entries_stay_gone_after_a_restart_test() {
+        try (DiskCache cache = new DiskCache("test.invalidate", settings())) {
+            cache.write("/demo01/product/1", "product-1");
+            cache.write("/demo01/product/2", "product-2");
+            cache.invalidate("/demo01/product/1");
+        }
+
+        try (DiskCache cache = new DiskCache("test.invalidate", settings())) {
+            assertNull(cache.read("/demo01/product/1"));
+            assertEquals("product-2", cache.read("/demo01/product/2"));
+            cache.write("/demo01/product/1", "renamed-1");
+        }
+
+        try (DiskCache cache = new DiskCache("test.invalidate", settings())) {
+            assertEquals("renamed-1", cache.read("/demo01/product/1")); // written after the tombstone
+        }
+    }
+
+    // the tombstone's segment goes before the one holding the value it hides, so the tombstone has to move on
+    @Test
+    public void tombstone_outlives_the_eviction_of_its_segment_test() {
+        DiskCacheSettings settings = settings().toBuilder().maxDiskBytes(2 * 4096).build();
+        String value = "x".repeat(1330); // three records fill a segment, without room for a tombstone
+        try (DiskCache cache = new DiskCache("test.tombstone", settings)) {
+            cache.write("/key/0", value);
+            cache.write("/key/1", value);
+            cache.write("/key/2", value);
+            cache.invalidate("/key/0"); // the tombstone starts the second segment
+            cache.write("/key/3", value);
+            Mono.delay(Duration.ofMillis(5)).block();
+            cache.read("/key/1"); // the first segment is the most recently read
+
+            cache.write("/key/4", value);
+            cache.write("/key/5", value); // a third segment evicts the second
+            assertNull(cache.read("/key/3"));
+        }
+
+        try (DiskCache cache = new DiskCache("test.tombstone", settings)) {
+            assertEquals(value, cache.read("/key/1"));
+            assertNull(cache.read("/key/0"));
+        }
+    }
+
+    @Test
+    public void evicted_and_closed_segments_are_unmapped_test() throws IOException {
+        Path maps = Path.of("/proc/self/maps");
+        assumeTrue(Files.isReadable(maps), "needs /proc to see the mappings");
+        DiskCacheSettings settings = settings().toBuilder().maxDiskBytes(2 * 4096).build();
+        try (DiskCache cache = new DiskCache("test.unmap", settings)) {
+            String value = "x".repeat(1000);
+            for (int i = 0; i < 9; i++) {
+                cache.write("/key/" + i, value); // three segments, the first one evicted
+            }
+            assertEquals(2, mappedSegments(maps));
+        }
+        assertEquals(0, mappedSegments(maps));
+    }
+
+    private DiskCacheSettings settings() {
+        return DiskCacheSettings.defaults().toBuilder()
+                .enabled(true)
+                .directory(directory)
+                .segmentBytes(4096)
+                .maxDiskBytes(64 * 4096)
+                .build();
+    }
+
+    private long mappedSegments(Path maps) throws IOException {
+        try (Stream<String> lines = Files.lines(maps)) {
+            return lines.filter(line -> line.contains(directory.toString()) && line.contains("segment-")).count();
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    private Mono<String> load(String value) {
+        return Mono.fromSupplier(() -> {
+            loads.incrementAndGet();
+            return value;
+        });
+    }
+}
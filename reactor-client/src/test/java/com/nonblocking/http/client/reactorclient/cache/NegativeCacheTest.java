@@ -0,0 +1,93 @@
+package com.nonblocking.http.client.reactorclient.cache;
+
+import com.nonblocking.http.client.reactorclient.config.NegativeCacheSettings;
+import com.nonblocking.http.client.reactorclient.exception.ClientError;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class NegativeCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void empty_result_is_remembered_test() {
+        NegativeCache<Integer> cache = new NegativeCache<>("test.empty", NegativeCacheSettings.defaults());
+
+        StepVerifier.create(cache.get(5, () -> load(Mono.<String>empty())).then(cache.get(5, () -> load(Mono.<String>empty()))))
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+        assertEquals(NegativeCache.Result.EMPTY, cache.getIfPresent(5));
+        assertEquals(1, cache.hits(NegativeCache.Result.EMPTY));
+        assertEquals(0, cache.hits(NegativeCache.Result.CLIENT_ERROR));
+    }
+
+    @Test
+    public void client_error_is_remembered_apart_from_empty_test() {
+        NegativeCache<Integer> cache = new NegativeCache<>("test.client-error", NegativeCacheSettings.defaults());
+
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(cache.get(1, () -> load(Mono.<String>error(new ClientError()))))
+                    .expectError(ClientError.class)
+                    .verify();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(NegativeCache.Result.CLIENT_ERROR, cache.getIfPresent(1));
+        assertEquals(2, cache.hits(NegativeCache.Result.CLIENT_ERROR));
+        assertEquals(0, cache.hits(NegativeCache.Result.EMPTY));
+    }
+
+    @Test
+    public void values_and_server_errors_are_not_remembered_test() {
+        NegativeCache<Integer> cache = new NegativeCache<>("test.other", NegativeCacheSettings.defaults());
+
+        cache.get(1, () -> load(Mono.just("product-1"))).block();
+        cache.get(1, () -> load(Mono.just("product-1"))).block();
+        cache.get(2, () -> load(Mono.<String>error(new ServerError()))).onErrorResume(e -> Mono.empty()).block();
+        cache.get(2, () -> load(Mono.<String>error(new ServerError()))).onErrorResume(e -> Mono.empty()).block();
+
+        assertEquals(4, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void expired_and_invalidated_entries_are_loaded_again_test() {
+        NegativeCacheSettings settings = NegativeCacheSettings.defaults().toBuilder().ttl(Duration.ofMillis(100)).build();
+        NegativeCache<Integer> cache = new NegativeCache<>("test.ttl", settings);
+
+        cache.get(5, () -> load(Mono.<String>empty())).block();
+        Mono.delay(Duration.ofMillis(150)).block();
+        cache.get(5, () -> load(Mono.<String>empty())).block();
+        cache.invalidate(5);
+        cache.get(5, () -> load(Mono.<String>empty())).block();
+
+        assertEquals(3, loads.get());
+        assertNull(cache.getIfPresent(6));
+    }
+
+    @Test
+    public void disabled_cache_always_loads_test() {
+        NegativeCache<Integer> cache = new NegativeCache<>("test.disabled", NegativeCacheSettings.defaults().toBuilder().enabled(false).build());
+
+        cache.get(5, () -> load(Mono.<String>empty())).block();
+        cache.get(5, () -> load(Mono.<String>empty())).block();
+
+        assertEquals(2, loads.get());
+    }
+
+    private <T> Mono<T> load(Mono<T> result) {
+        return Mono.defer(() -> {
+            loads.incrementAndGet();
+            return result;
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.nonblocking.http.client.reactorclient.coalesce;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    @Test
+    public void concurrent_subscribers_share_one_call_test() {
+        StepVerifier.create(Flux.range(1, 10)
+                        .flatMap(i -> singleFlight.execute(1, this::slowCall))
+                        .distinct())
+                .expectNext("product-1")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    public void completed_call_is_not_reused_test() {
+        singleFlight.execute(1, this::slowCall).block();
+        singleFlight.execute(1, this::slowCall).block();
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void errors_are_shared_by_all_waiters_test() {
+        StepVerifier.create(Flux.range(1, 5)
+                        .flatMap(i -> singleFlight.execute(1, () -> {
+                            calls.incrementAndGet();
+                            return Mono.<String>error(new IllegalStateException("boom")).delaySubscription(Duration.ofMillis(100));
+                        }).onErrorReturn("failed")))
+                .expectNext("failed", "failed", "failed", "failed", "failed")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void upstream_is_cancelled_only_when_last_waiter_cancels_test() {
+        Disposable first = singleFlight.execute(1, this::slowCall).subscribe();
+        Disposable second = singleFlight.execute(1, this::slowCall).subscribe();
+
+        first.dispose();
+        assertFalse(cancelled.get());
+        assertEquals(1, singleFlight.inFlight());
+
+        second.dispose();
+        assertTrue(cancelled.get());
+        assertEquals(0, singleFlight.inFlight());
+        assertEquals(1, calls.get());
+    }
+
+    private Mono<String> slowCall() {
+        calls.incrementAndGet();
+        return Mono.delay(Duration.ofMillis(200))
+                .map(i -> "product-1")
+                .doOnCancel(() -> cancelled.set(true));
+    }
+}
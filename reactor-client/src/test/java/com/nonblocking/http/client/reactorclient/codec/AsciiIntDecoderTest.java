@@ -0,0 +1,104 @@
+package com.nonblocking.http.client.reactorclient.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AsciiIntDecoderTest {
+
+    @Test
+    public void one_value_per_chunk_test() {
+        StepVerifier.create(AsciiIntDecoder.decode(chunks("97\n", "103\n", "88\n")))
+                .expectNext(97, 103, 88)
+                .verifyComplete();
+    }
+
+    @Test
+    public void several_values_in_one_chunk_test() {
+        StepVerifier.create(AsciiIntDecoder.decode(chunks("97\n103\n88\n")))
+                .expectNext(97, 103, 88)
+                .verifyComplete();
+    }
+
+    @Test
+    public void values_split_across_chunks_test() {
+        StepVerifier.create(AsciiIntDecoder.decode(chunks("9", "7\n10", "3", "\n8", "8")))
+                .expectNext(97, 103, 88)
+                .verifyComplete();
+    }
+
+    @Test
+    public void negative_values_and_other_delimiters_test() {
+        StepVerifier.create(AsciiIntDecoder.decode(chunks("-5, 12\r\n", "0 -2147483648")))
+                .expectNext(-5, 12, 0, Integer.MIN_VALUE)
+                .verifyComplete();
+    }
+
+    @Test
+    public void values_out_of_range_fail_test() {
+        StepVerifier.create(AsciiIntDecoder.decode(chunks("2147483648\n")))
+                .expectError(NumberFormatException.class)
+                .verify();
+    }
+
+    // one price per chunk and no delimiter
+    @Test
+    public void chunk_framed_values_end_with_their_chunk_test() {
+        StepVerifier.create(AsciiIntDecoder.decode(chunks("97", "103", "88"), true))
+                .expectNext(97, 103, 88)
+                .verifyComplete();
+    }
+
+    @Test
+    public void chunk_framed_values_may_still_be_delimited_test() {
+        StepVerifier.create(AsciiIntDecoder.decode(chunks("97\n103", "88\n"), true))
+                .expectNext(97, 103, 88)
+                .verifyComplete();
+    }
+
+    // what the delimited framing makes of an undelimited stream
+    @Test
+    public void delimited_framing_runs_undelimited_values_together_test() {
+        StepVerifier.create(AsciiIntDecoder.decode(chunks("97", "103")))
+                .expectNext(97103)
+                .verifyComplete();
+    }
+
+    @Test
+    public void primitive_consumer_does_not_release_buffers_test() {
+        AsciiIntDecoder decoder = new AsciiIntDecoder();
+        List<Integer> prices = new ArrayList<>();
+        ByteBuf first = buffer("81\n9");
+        ByteBuf second = buffer("9\n");
+
+        decoder.decode(first, prices::add);
+        decoder.decode(second, prices::add);
+        decoder.finish(prices::add);
+
+        assertEquals(List.of(81, 99), prices);
+        assertEquals(1, first.refCnt());
+        first.release();
+        second.release();
+    }
+
+    // like responseContent(), every chunk is released once it has been delivered
+    private Flux<ByteBuf> chunks(String... chunks) {
+        return Flux.fromArray(chunks)
+                .map(this::buffer)
+                .concatMap(buf -> Flux.just(buf).doFinally(signal -> buf.release()), 0);
+    }
+
+    private ByteBuf buffer(String chunk) {
+        ByteBuf buf = ByteBufAllocator.DEFAULT.buffer();
+        buf.writeCharSequence(chunk, StandardCharsets.US_ASCII);
+        return buf;
+    }
+}
@@ -0,0 +1,104 @@
+package com.nonblocking.http.client.reactorclient.codec;
+
+import com.nonblocking.http.client.assignment.hotandcoldpublisher.Order;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DelimitedFrameDecoderTest {
+
+    private static final FrameParser<String> STRING = (buffer, index, length) -> buffer.toString(index, length, StandardCharsets.UTF_8);
+
+    @Test
+    public void frames_split_and_batched_across_chunks_test() {
+        StepVerifier.create(DelimitedFrameDecoder.decodeLines(chunks("Sam\nMi", "ke\r\nJake\nEm", "ma"), 64, STRING))
+                .expectNext("Sam", "Mike", "Jake", "Emma")
+                .verifyComplete();
+    }
+
+    @Test
+    public void empty_frames_are_skipped_test() {
+        StepVerifier.create(DelimitedFrameDecoder.decodeLines(chunks("\n\nSam\n", "\n"), 64, STRING))
+                .expectNext("Sam")
+                .verifyComplete();
+    }
+
+    @Test
+    public void orders_are_parsed_into_records_test() {
+        StepVerifier.create(DelimitedFrameDecoder.decodeLines(chunks("Shirt:Clothing:120.5:3\nLap", "top:Electronics:999.0:1\n"), 64, new OrderParser()))
+                .expectNext(new Order("Shirt", "Clothing", 120.5, 3))
+                .expectNext(new Order("Laptop", "Electronics", 999.0, 1))
+                .verifyComplete();
+    }
+
+    @Test
+    public void frames_longer_than_max_fail_the_stream_test() {
+        StepVerifier.create(DelimitedFrameDecoder.decodeLines(chunks("0123456789", "0123456789\n"), 16, STRING))
+                .expectError(TooLongFrameException.class)
+                .verify();
+    }
+
+    @Test
+    public void cumulation_is_released_on_cancel_test() {
+        DelimitedFrameDecoder<String> decoder = new DelimitedFrameDecoder<>((byte) '\n', 64, STRING);
+        ByteBuf chunk = buffer("Sam\nMi");
+
+        assertEquals(List.of("Sam"), decoder.decode(chunk));
+        ByteBuf cumulation = decoder.cumulation();
+        assertEquals(1, cumulation.refCnt());
+
+        decoder.release();
+
+        assertEquals(0, cumulation.refCnt());
+        assertNull(decoder.cumulation());
+        assertEquals(List.of(), decoder.decode(chunk));
+        chunk.release();
+    }
+
+    // one element per chunk and no delimiter
+    @Test
+    public void one_frame_per_chunk_without_delimiter_test() {
+        StepVerifier.create(DelimitedFrameDecoder.decodeChunks(chunks("Shirt:Clothing:120.5:3", "Laptop:Electronics:999.0:1"), 64, new OrderParser()))
+                .expectNext(new Order("Shirt", "Clothing", 120.5, 3))
+                .expectNext(new Order("Laptop", "Electronics", 999.0, 1))
+                .verifyComplete();
+    }
+
+    @Test
+    public void chunk_longer_than_max_fails_the_stream_test() {
+        StepVerifier.create(DelimitedFrameDecoder.decodeChunks(chunks("Sam", "0123456789"), 8, STRING))
+                .expectNext("Sam")
+                .expectError(TooLongFrameException.class)
+                .verify();
+    }
+
+    @Test
+    public void malformed_order_is_rejected_test() {
+        ByteBuf frame = buffer("Shirt:Clothing");
+        assertThrows(IllegalArgumentException.class, () -> new OrderParser().parse(frame, 0, frame.readableBytes()));
+        frame.release();
+    }
+
+    // like responseContent(), every chunk is released once it has been delivered
+    private Flux<ByteBuf> chunks(String... chunks) {
+        return Flux.fromArray(chunks)
+                .map(this::buffer)
+                .concatMap(buf -> Flux.just(buf).doFinally(signal -> buf.release()), 0);
+    }
+
+    private ByteBuf buffer(String chunk) {
+        ByteBuf buf = ByteBufAllocator.DEFAULT.buffer();
+        buf.writeCharSequence(chunk, StandardCharsets.UTF_8);
+        return buf;
+    }
+}
@@ -0,0 +1,93 @@
+package com.nonblocking.http.client.reactorclient.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/* *
+ * String based parsing of the stock price stream (asString() + Integer.valueOf, one price per chunk) vs. AsciiIntDecoder.
+ * Not part of the test run: run main() from the IDE (or with the test classpath after mvn test-compile).
+ * Scores are per 1024 prices. Add .addProfiler(GCProfiler.class) to the options to compare allocations.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockPriceDecodingBenchmark {
+
+    private static final int CHUNKS = 1024;
+
+    private final ByteBuf[] singlePriceChunks = new ByteBuf[CHUNKS];
+    private ByteBuf batchedChunk;
+    private final AsciiIntDecoder decoder = new AsciiIntDecoder();
+
+    @Setup
+    public void setUp() {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < CHUNKS; i++) {
+            String price = String.valueOf(ThreadLocalRandom.current().nextInt(80, 121));
+            singlePriceChunks[i] = buffer(price);
+            batch.append(price).append('\n');
+        }
+        batchedChunk = buffer(batch.toString());
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (ByteBuf chunk : singlePriceChunks) {
+            chunk.release();
+        }
+        batchedChunk.release();
+    }
+
+    // what getStockPrices() did before: a String per chunk, then Integer.valueOf
+    @Benchmark
+    public void asStringThenValueOf(Blackhole blackhole) {
+        for (ByteBuf chunk : singlePriceChunks) {
+            blackhole.consume(Integer.valueOf(chunk.toString(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Benchmark
+    public void decoderOnePricePerChunk(Blackhole blackhole) {
+        for (ByteBuf chunk : singlePriceChunks) {
+            decoder.decode(chunk, blackhole::consume);
+            decoder.finish(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void decoderAllPricesInOneChunk(Blackhole blackhole) {
+        decoder.decode(batchedChunk, blackhole::consume);
+    }
+
+    private static ByteBuf buffer(String content) {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+        buf.writeCharSequence(content, StandardCharsets.US_ASCII);
+        return buf;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StockPriceDecodingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.nonblocking.http.client.reactorclient.codec;
+
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.config.StreamSettings;
+import com.nonblocking.http.client.reactorclient.impl.ExternalServiceClient;
+import com.nonblocking.http.stub.ExternalServiceStub;
+import com.nonblocking.http.stub.Route;
+import com.nonblocking.http.stub.StubSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* *
+ * The stream framings of ExternalServiceClient against the stub: newline delimited, the default, and one element per chunk.
+ * */
+public class StreamFramingTest {
+
+    private ExternalServiceStub stub;
+    private ExternalServiceClient client;
+
+    @AfterEach
+    public void tearDown() {
+        client.dispose();
+        stub.close();
+    }
+
+    @Test
+    public void stock_prices_one_per_chunk_test() {
+        start("");
+
+        StepVerifier.create(client.getStockPrices())
+                .recordWith(ArrayList::new)
+                .expectNextCount(20)
+                .consumeRecordedWith(prices -> assertTrue(prices.stream().allMatch(price -> price >= 80 && price <= 120), prices::toString))
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void stock_prices_newline_delimited_test() {
+        start("\n");
+
+        StepVerifier.create(client.getStockPrices())
+                .recordWith(ArrayList::new)
+                .expectNextCount(20)
+                .consumeRecordedWith(prices -> assertTrue(prices.stream().allMatch(price -> price >= 80 && price <= 120), prices::toString))
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void names_one_per_chunk_test() {
+        start("");
+
+        StepVerifier.create(client.getNameStream())
+                .expectNextCount(20)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void orders_one_per_chunk_test() {
+        start("");
+
+        StepVerifier.create(client.getDemo04Orders().take(20))
+                .expectNextCount(20)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void orders_newline_delimited_test() {
+        start("\n");
+
+        StepVerifier.create(client.getDemo04OrdersStream().take(20))
+                .thenConsumeWhile(order -> order.split(":").length == 4)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    private void start(String delimiter) {
+        stub = ExternalServiceStub.start(0, StubSettings.defaults()
+                .with(Route.DEMO02_STOCK_STREAM, route -> route.emitInterval(Duration.ofMillis(10)).emissions(20).delimiter(delimiter))
+                .with(Route.DEMO02_NAME_STREAM, route -> route.emitInterval(Duration.ofMillis(10)).emissions(20).delimiter(delimiter))
+                .with(Route.DEMO04_ORDERS_STREAM, route -> route.emitInterval(Duration.ofMillis(10)).delimiter(delimiter)));
+        client = new ExternalServiceClient(ClientSettings.defaults().toBuilder()
+                .baseUrl(stub.baseUrl())
+                .stream(StreamSettings.defaults().toBuilder().delimiter(delimiter).build())
+                .build());
+    }
+}
@@ -0,0 +1,127 @@
+package com.nonblocking.http.client.reactorclient.metrics;
+
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.exception.ClientError;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import com.nonblocking.http.client.reactorclient.impl.ExternalServiceClient;
+import com.nonblocking.http.stub.ExternalServiceStub;
+import com.nonblocking.http.stub.Route;
+import com.nonblocking.http.stub.StubSettings;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExchangeMetricsTest {
+
+    private ExternalServiceStub stub;
+    private ExternalServiceClient client;
+
+    private static final SimpleMeterRegistry REGISTRY = new SimpleMeterRegistry();
+
+    @BeforeAll
+    public static void registerMeterRegistry() {
+        Metrics.addRegistry(REGISTRY); // the global registry is a no-op without one
+    }
+
+    @BeforeEach
+    public void setUp() {
+        stub = ExternalServiceStub.start(0, StubSettings.defaults()
+                .with(Route.DEMO01_PRODUCT, route -> route.latency(Duration.ofMillis(200)))
+                .with(Route.DEMO03_TIMEOUT_FALLBACK, route -> route.latency(Duration.ofMillis(500)))
+                .with(Route.DEMO06_COUNTRY, route -> route.latency(Duration.ofMillis(50)).errorRate(1))
+                .with(Route.DEMO02_STOCK_STREAM, route -> route.latency(Duration.ofMillis(50)).emitInterval(Duration.ofMillis(10))));
+        client = new ExternalServiceClient(ClientSettings.defaults().toBuilder().baseUrl(stub.baseUrl()).build());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.dispose();
+        stub.close();
+    }
+
+    @Test
+    public void latencies_are_recorded_to_first_byte_and_completion_test() {
+        StepVerifier.create(client.getProductName(1))
+                .expectNext("product-1")
+                .verifyComplete();
+
+        ExchangeMetrics.Snapshot snapshot = client.metrics().snapshot().get("demo01.product");
+        assertEquals(1, snapshot.success());
+        assertEquals(1, snapshot.firstByte().count());
+        assertEquals(1, snapshot.completion().count());
+        assertTrue(snapshot.firstByte().p50().compareTo(Duration.ofMillis(200)) >= 0, snapshot.toString());
+        assertTrue(snapshot.completion().max().compareTo(snapshot.firstByte().max()) >= 0, snapshot.toString());
+    }
+
+    @Test
+    public void percentiles_are_published_from_the_snapshot_histogram_test() {
+        ExchangeMetrics metrics = new ExchangeMetrics("test.percentiles");
+        for (int i = 0; i < 5; i++) {
+            metrics.measure(Mono.delay(Duration.ofMillis(20))).block();
+        }
+
+        Gauge p99 = REGISTRY.find("external.service.latency.percentile")
+                .tags("endpoint", "test.percentiles", "phase", "complete", "percentile", "0.99")
+                .gauge();
+        Timer timer = REGISTRY.find("external.service.latency").tags("endpoint", "test.percentiles", "phase", "complete").timer();
+        assertEquals(metrics.snapshot().completion().p99().toNanos() / 1e9, p99.value(), 1e-9);
+        assertTrue(p99.value() >= 0.02, "p99 " + p99.value());
+        assertEquals(5, timer.count());
+        assertEquals(0, timer.takeSnapshot().percentileValues().length, "the timer keeps no histogram of its own");
+    }
+
+    @Test
+    public void status_codes_are_counted_per_outcome_test() {
+        StepVerifier.create(client.getProductNameForRetry(1))
+                .expectError(ClientError.class)
+                .verify();
+        StepVerifier.create(client.getCountryNameForRepeat())
+                .expectError(ServerError.class)
+                .verify();
+
+        ExchangeMetrics.Snapshot product = client.metrics().snapshot().get("demo06.product");
+        ExchangeMetrics.Snapshot country = client.metrics().snapshot().get("demo06.country");
+        assertEquals(1, product.clientErrors());
+        assertEquals(0, product.success());
+        assertEquals(1, country.serverErrors());
+        assertTrue(Metrics.globalRegistry.get("external.service.requests")
+                .tags("endpoint", "demo06.country", "outcome", "5xx")
+                .counter().count() >= 1);
+    }
+
+    @Test
+    public void cancelled_exchanges_are_counted_but_not_timed_test() {
+        // not a cached endpoint: a cache load keeps going when its caller gives up
+        StepVerifier.create(client.getDemo03TimeoutFallbackProductName(1).timeout(Duration.ofMillis(50)))
+                .expectError(TimeoutException.class)
+                .verify();
+
+        ExchangeMetrics.Snapshot snapshot = client.metrics().snapshot().get("demo03.timeout-fallback");
+        assertEquals(1, snapshot.cancels());
+        assertEquals(0, snapshot.completion().count());
+    }
+
+    @Test
+    public void streams_are_measured_until_cancelled_test() {
+        StepVerifier.create(client.getStockPrices().take(3))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        ExchangeMetrics.Snapshot snapshot = client.metrics().snapshot().get("demo02.stock");
+        assertEquals(1, snapshot.cancels());
+        assertEquals(1, snapshot.firstByte().count());
+    }
+}
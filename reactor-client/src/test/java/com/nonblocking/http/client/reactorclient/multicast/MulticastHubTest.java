@@ -0,0 +1,175 @@
+package com.nonblocking.http.client.reactorclient.multicast;
+
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.config.MulticastSettings;
+import com.nonblocking.http.client.reactorclient.impl.ExternalServiceClient;
+import com.nonblocking.http.stub.ExternalServiceStub;
+import com.nonblocking.http.stub.Route;
+import com.nonblocking.http.stub.StubSettings;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MulticastHubTest {
+
+    @Test
+    public void subscribers_share_one_upstream_subscription_test() throws InterruptedException {
+        Sinks.Many<Integer> upstream = Sinks.many().multicast().directBestEffort();
+        AtomicInteger connections = new AtomicInteger();
+        MulticastHub<Integer> hub = new MulticastHub<>("numbers", upstream.asFlux().doOnSubscribe(subscription -> connections.incrementAndGet()),
+                MulticastSettings.defaults());
+
+        List<Integer> first = new CopyOnWriteArrayList<>();
+        List<Integer> second = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(6);
+        Disposable a = hub.subscribe("first").subscribe(i -> {
+            first.add(i);
+            delivered.countDown();
+        });
+        Disposable b = hub.subscribe("second").subscribe(i -> {
+            second.add(i);
+            delivered.countDown();
+        });
+        for (int i = 1; i <= 3; i++) {
+            upstream.tryEmitNext(i);
+        }
+
+        assertTrue(delivered.await(1, TimeUnit.SECONDS));
+        assertEquals(1, connections.get());
+        assertEquals(List.of(1, 2, 3), first);
+        assertEquals(List.of(1, 2, 3), second);
+        assertEquals(2, hub.subscribers());
+        a.dispose();
+        b.dispose();
+        assertEquals(0, hub.subscribers());
+    }
+
+    @Test
+    public void slow_subscriber_does_not_stall_the_others_test() {
+        Sinks.Many<Integer> upstream = Sinks.many().multicast().directBestEffort();
+        MulticastHub<Integer> hub = new MulticastHub<>("numbers", upstream.asFlux(), MulticastSettings.defaults().toBuilder()
+                .bufferSize(10)
+                .build());
+
+        CountDownLatch fast = new CountDownLatch(100);
+        hub.subscribe("fast", 128, MulticastSettings.Overflow.ERROR).subscribe(i -> fast.countDown());
+        StepVerifier.create(hub.subscribe("slow"), 0)
+                .then(() -> {
+                    for (int i = 1; i <= 100; i++) {
+                        upstream.tryEmitNext(i);
+                    }
+                    assertTrue(await(fast), "fast still waits for " + fast.getCount());
+                    MulticastHub.Lag slow = hub.lag().get(0);
+                    assertEquals("slow", slow.subscriber());
+                    assertEquals(11, slow.buffered()); // its buffer and the element handed to its worker
+                    assertEquals(89, slow.dropped());
+                })
+                .thenRequest(11)
+                .expectNext(1, 91, 92, 93, 94, 95, 96, 97, 98, 99, 100) // the oldest buffered were dropped
+                .then(() -> assertEquals(0, hub.lag().get(0).buffered()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void blocking_subscriber_does_not_stall_the_others_test() {
+        Sinks.Many<Integer> upstream = Sinks.many().multicast().directBestEffort();
+        MulticastHub<Integer> hub = new MulticastHub<>("numbers", upstream.asFlux(), MulticastSettings.defaults().toBuilder()
+                .bufferSize(10)
+                .build());
+
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch fast = new CountDownLatch(100);
+        Disposable blocking = hub.subscribe("blocking").subscribe(i -> await(unblock));
+        Disposable other = hub.subscribe("fast", 128, MulticastSettings.Overflow.ERROR).subscribe(i -> fast.countDown());
+        for (int i = 1; i <= 100; i++) {
+            upstream.tryEmitNext(i);
+        }
+
+        assertTrue(await(fast), "fast still waits for " + fast.getCount());
+        MulticastHub.Lag lag = hub.lag().get(0);
+        assertEquals("blocking", lag.subscriber());
+        assertEquals(89, lag.dropped()); // one in its onNext, ten in its buffer
+        unblock.countDown();
+        blocking.dispose();
+        other.dispose();
+    }
+
+    @Test
+    public void overflowing_subscriber_with_error_policy_fails_alone_test() throws InterruptedException {
+        Sinks.Many<Integer> upstream = Sinks.many().multicast().directBestEffort();
+        MulticastHub<Integer> hub = new MulticastHub<>("numbers", upstream.asFlux(), MulticastSettings.defaults());
+
+        List<Integer> fast = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(5);
+        hub.subscribe("fast").subscribe(i -> {
+            fast.add(i);
+            delivered.countDown();
+        });
+        StepVerifier.create(hub.subscribe("slow", 2, MulticastSettings.Overflow.ERROR), 0)
+                .then(() -> {
+                    for (int i = 1; i <= 4; i++) {
+                        upstream.tryEmitNext(i);
+                    }
+                })
+                .thenRequest(3)
+                .expectNext(1, 2, 3)
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(1));
+
+        upstream.tryEmitNext(5);
+        assertTrue(delivered.await(1, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3, 4, 5), fast);
+        assertEquals(1, hub.subscribers());
+    }
+
+    @Test
+    public void subscriber_name_is_subscribed_once_at_a_time_test() {
+        MulticastHub<Integer> hub = new MulticastHub<>("numbers", Flux.never(), MulticastSettings.defaults());
+        Disposable subscription = hub.subscribe("revenue").subscribe();
+
+        StepVerifier.create(hub.subscribe("revenue"))
+                .expectError(IllegalStateException.class)
+                .verify();
+        subscription.dispose();
+    }
+
+    @Test
+    public void order_processors_share_one_connection_test() {
+        try (ExternalServiceStub stub = ExternalServiceStub.start(0, StubSettings.defaults()
+                .with(Route.DEMO04_ORDERS_STREAM, route -> route.emitInterval(Duration.ofMillis(10))))) {
+            ExternalServiceClient client = new ExternalServiceClient(ClientSettings.defaults().toBuilder()
+                    .baseUrl(stub.baseUrl())
+                    .build());
+
+            Disposable revenue = client.getDemo04SharedOrders("revenue").subscribe();
+            StepVerifier.create(client.getDemo04SharedOrders("inventory").take(20))
+                    .expectNextCount(20)
+                    .then(() -> assertEquals(1, client.loadBalancer().replicas().get(0).outstanding()))
+                    .verifyComplete();
+            revenue.dispose();
+            client.dispose();
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
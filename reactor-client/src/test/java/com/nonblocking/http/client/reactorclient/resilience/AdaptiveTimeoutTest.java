@@ -0,0 +1,104 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.TimeoutSettings;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AdaptiveTimeoutTest {
+
+    private static final TimeoutSettings SETTINGS = TimeoutSettings.defaults().toBuilder()
+            .enabled(true)
+            .initial(Duration.ofMillis(500))
+            .multiplier(3)
+            .floor(Duration.ofMillis(50))
+            .ceiling(Duration.ofSeconds(1))
+            .minSamples(10)
+            .build();
+
+    @Test
+    public void initial_timeout_applies_until_enough_samples_test() {
+        AdaptiveTimeout timeout = new AdaptiveTimeout("test.initial", SETTINGS);
+
+        StepVerifier.withVirtualTime(() -> timeout.protect(Mono.never()))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(499))
+                .thenAwait(Duration.ofMillis(1))
+                .expectError(TimeoutException.class)
+                .verify();
+
+        assertEquals(Duration.ofMillis(500), timeout.current());
+        assertEquals(1, timeout.fired());
+    }
+
+    @Test
+    public void timeout_tracks_the_quantile_times_the_multiplier_test() {
+        AdaptiveTimeout timeout = new AdaptiveTimeout("test.tracked", SETTINGS);
+
+        for (int i = 0; i < 96; i++) {
+            timeout.sample(Duration.ofMillis(100).toNanos());
+        }
+
+        assertEquals(Duration.ofMillis(300), timeout.current());
+    }
+
+    @Test
+    public void timeout_is_clamped_between_floor_and_ceiling_test() {
+        AdaptiveTimeout fast = new AdaptiveTimeout("test.floor", SETTINGS);
+        AdaptiveTimeout slow = new AdaptiveTimeout("test.ceiling", SETTINGS);
+
+        for (int i = 0; i < 32; i++) {
+            fast.sample(Duration.ofMillis(1).toNanos());
+            slow.sample(Duration.ofSeconds(2).toNanos());
+        }
+
+        assertEquals(Duration.ofMillis(50), fast.current());
+        assertEquals(Duration.ofSeconds(1), slow.current());
+    }
+
+    // the endpoint got slower than the timeout: the fired timeouts are samples of 300 ms, so the timeout grows to 900 ms
+    @Test
+    public void fired_timeouts_raise_the_timeout_test() {
+        AdaptiveTimeout timeout = new AdaptiveTimeout("test.fired", SETTINGS);
+        for (int i = 0; i < 96; i++) {
+            timeout.sample(Duration.ofMillis(100).toNanos());
+        }
+
+        StepVerifier.create(Flux.range(1, 3).flatMap(i -> timeout.protect(Mono.never()).onErrorResume(TimeoutException.class, e -> Mono.empty())))
+                .verifyComplete();
+
+        assertEquals(3, timeout.fired());
+        assertEquals(Duration.ofMillis(900), timeout.current());
+    }
+
+    @Test
+    public void answers_of_the_service_are_samples_test() {
+        AdaptiveTimeout timeout = new AdaptiveTimeout("test.answers", SETTINGS.toBuilder().minSamples(1).build());
+
+        Flux.range(1, 16)
+                .flatMap(i -> timeout.protect(i % 2 == 0 ? Mono.just(i) : Mono.<Integer>error(new ServerError()))
+                        .onErrorResume(ServerError.class, e -> Mono.empty()))
+                .blockLast();
+
+        // answered right away, the timeout drops to the floor
+        assertEquals(Duration.ofMillis(50), timeout.current());
+        assertEquals(0, timeout.fired());
+    }
+
+    @Test
+    public void disabled_timeout_lets_slow_calls_through_test() {
+        AdaptiveTimeout timeout = new AdaptiveTimeout("test.disabled", TimeoutSettings.defaults());
+
+        StepVerifier.withVirtualTime(() -> timeout.protect(Mono.just("late").delayElement(Duration.ofMinutes(1))))
+                .thenAwait(Duration.ofMinutes(1))
+                .expectNext("late")
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,118 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.BulkheadSettings;
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.config.PoolSettings;
+import com.nonblocking.http.client.reactorclient.exception.BulkheadFullError;
+import com.nonblocking.http.client.reactorclient.impl.ExternalServiceClient;
+import com.nonblocking.http.stub.ExternalServiceStub;
+import com.nonblocking.http.stub.Route;
+import com.nonblocking.http.stub.StubSettings;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/* *
+ * The demo05 lookups take a second each. Flooding them must not slow the demo01 product lookups down once demo05 has a bulkhead.
+ * */
+@Slf4j
+public class BulkheadTest {
+
+    private ExternalServiceStub stub;
+    private ExternalServiceClient client;
+
+    @BeforeEach
+    public void setUp() {
+        stub = ExternalServiceStub.start(0, StubSettings.defaults()
+                .with(Route.DEMO01_PRODUCT, route -> route.latency(Duration.ofMillis(20))));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.dispose();
+        stub.close();
+    }
+
+    @Test
+    public void saturated_group_does_not_slow_down_other_endpoints_test() {
+        client = client(BulkheadSettings.defaults().with("demo05", demo05(4, 100)));
+
+        Disposable flood = flood(40);
+        for (int productId = 1; productId <= 5; productId++) {
+            long start = System.nanoTime();
+            StepVerifier.create(client.getProductName(productId))
+                    .expectNext("product-" + productId)
+                    .verifyComplete();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            log.info("product lookup next to a flooded demo05 bulkhead: {} ms", millis);
+            assertTrue(millis < 500, "product lookup took " + millis + " ms");
+        }
+        assertEquals(4, client.bulkhead("demo05.price").inFlight());
+        assertEquals(36, client.bulkhead("demo05.price").queued());
+        flood.dispose();
+    }
+
+    // the same flood without a bulkhead: the product lookup queues for a connection behind the demo05 calls
+    @Test
+    public void without_bulkhead_a_saturated_endpoint_slows_down_the_others_test() {
+        client = client(BulkheadSettings.defaults());
+
+        Disposable flood = flood(40);
+        StepVerifier.create(client.getProductName(1))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(1500))
+                .thenCancel()
+                .verify();
+        flood.dispose();
+    }
+
+    @Test
+    public void full_bulkhead_rejects_test() {
+        client = client(BulkheadSettings.defaults().with("demo05", demo05(1, 1)));
+
+        StepVerifier.create(Flux.range(1, 3)
+                        .flatMap(productId -> client.getDemo05PriceName(productId)
+                                .onErrorResume(BulkheadFullError.class, ex -> Mono.just("rejected")))
+                        .filter("rejected"::equals)
+                        .count())
+                .expectNext(1L)
+                .verifyComplete();
+        assertEquals(0, client.bulkhead("demo05.price").inFlight());
+    }
+
+    private Disposable flood(int calls) {
+        return Flux.range(1, calls)
+                .flatMap(i -> client.getDemo05PriceName(i % 10 + 1).onErrorResume(ex -> Mono.empty()))
+                .subscribe();
+    }
+
+    private static BulkheadSettings.Group demo05(int maxConcurrent, int maxQueue) {
+        return BulkheadSettings.Group.builder()
+                .endpoints(Set.of("demo05.price", "demo05.product", "demo05.review"))
+                .pool(PoolSettings.defaults().toBuilder().name("bulkhead-demo05").maxConnections(maxConcurrent).build())
+                .maxConcurrent(maxConcurrent)
+                .maxQueue(maxQueue)
+                .maxWait(Duration.ofSeconds(30))
+                .build();
+    }
+
+    // the shared pool is as small as the bulkhead's, and lets requests queue for a connection
+    private ExternalServiceClient client(BulkheadSettings bulkhead) {
+        return new ExternalServiceClient(ClientSettings.defaults().toBuilder()
+                .baseUrl(stub.baseUrl())
+                .pool(PoolSettings.defaults().toBuilder().name("bulkhead-shared").maxConnections(4).pendingAcquireMaxCount(-1).build())
+                .bulkhead(bulkhead)
+                .build());
+    }
+}
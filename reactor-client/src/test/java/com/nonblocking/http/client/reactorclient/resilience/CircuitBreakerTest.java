@@ -0,0 +1,137 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.CircuitBreakerSettings;
+import com.nonblocking.http.client.reactorclient.exception.CircuitOpenError;
+import com.nonblocking.http.client.reactorclient.exception.ClientError;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final CircuitBreakerSettings SETTINGS = CircuitBreakerSettings.defaults().toBuilder()
+            .windowSize(10)
+            .minimumCalls(4)
+            .failureRateThreshold(50)
+            .slowCallDuration(Duration.ofMillis(100))
+            .slowCallRateThreshold(75)
+            .openDuration(Duration.ofMillis(200))
+            .halfOpenProbes(2)
+            .build();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeAll
+    public static void registerMeterRegistry() {
+        Metrics.addRegistry(new SimpleMeterRegistry()); // the global registry is a no-op without one
+    }
+
+    @Test
+    public void failure_rate_opens_circuit_and_fails_fast_test() {
+        CircuitBreaker breaker = new CircuitBreaker("test.failures", SETTINGS);
+
+        for (int i = 0; i < 4; i++) {
+            call(breaker, i % 2 == 0 ? failure() : success());
+        }
+
+        assertEquals(CircuitBreaker.Type.OPEN, breaker.state());
+        StepVerifier.create(call(breaker, success()))
+                .expectError(CircuitOpenError.class)
+                .verify();
+        assertEquals(4, calls.get());
+        assertTrue(Metrics.globalRegistry.get("external.service.circuit.transitions")
+                .tags("endpoint", "test.failures", "from", "CLOSED", "to", "OPEN")
+                .counter().count() >= 1);
+    }
+
+    @Test
+    public void client_errors_do_not_open_circuit_test() {
+        CircuitBreaker breaker = new CircuitBreaker("test.client-errors", SETTINGS);
+
+        for (int i = 0; i < 10; i++) {
+            call(breaker, Mono.error(new ClientError()));
+        }
+
+        assertEquals(CircuitBreaker.Type.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void slow_call_rate_opens_circuit_test() {
+        CircuitBreaker breaker = new CircuitBreaker("test.slow", SETTINGS);
+
+        for (int i = 0; i < 4; i++) {
+            call(breaker, Mono.just("slow").delayElement(Duration.ofMillis(120)));
+        }
+
+        assertEquals(CircuitBreaker.Type.OPEN, breaker.state());
+    }
+
+    @Test
+    public void successful_probes_close_circuit_test() {
+        CircuitBreaker breaker = open("test.recover");
+
+        Mono.delay(Duration.ofMillis(250)).block();
+        call(breaker, success());
+        assertEquals(CircuitBreaker.Type.HALF_OPEN, breaker.state());
+        call(breaker, success());
+
+        assertEquals(CircuitBreaker.Type.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void failed_probe_reopens_circuit_test() {
+        CircuitBreaker breaker = open("test.reopen");
+
+        Mono.delay(Duration.ofMillis(250)).block();
+        call(breaker, failure());
+
+        assertEquals(CircuitBreaker.Type.OPEN, breaker.state());
+    }
+
+    @Test
+    public void half_open_lets_limited_probes_through_test() {
+        CircuitBreaker breaker = open("test.probes");
+        Mono.delay(Duration.ofMillis(250)).block();
+
+        // two probes in flight, the third call is rejected
+        breaker.protect(Mono.never()).subscribe();
+        breaker.protect(Mono.never()).subscribe();
+
+        StepVerifier.create(breaker.protect(success()))
+                .expectError(CircuitOpenError.class)
+                .verify();
+    }
+
+    private CircuitBreaker open(String endpoint) {
+        CircuitBreaker breaker = new CircuitBreaker(endpoint, SETTINGS);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, failure());
+        }
+        assertEquals(CircuitBreaker.Type.OPEN, breaker.state());
+        return breaker;
+    }
+
+    private Mono<String> call(CircuitBreaker breaker, Mono<String> response) {
+        Mono<String> call = response.doOnSubscribe(s -> calls.incrementAndGet()).transformDeferred(breaker::protect);
+        call.onErrorResume(ex -> Mono.empty()).block();
+        return call;
+    }
+
+    private Mono<String> success() {
+        return Mono.just("ok");
+    }
+
+    private Mono<String> failure() {
+        return Mono.error(new ServerError());
+    }
+}
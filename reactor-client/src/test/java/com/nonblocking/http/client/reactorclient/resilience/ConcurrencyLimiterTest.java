@@ -0,0 +1,137 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.ConcurrencyLimitSettings;
+import com.nonblocking.http.client.reactorclient.exception.LimitExceededError;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrencyLimiterTest {
+
+    private static final ConcurrencyLimitSettings FIXED = ConcurrencyLimitSettings.defaults().toBuilder()
+            .enabled(true)
+            .initialLimit(2)
+            .minLimit(1)
+            .maxLimit(2)
+            .maxQueue(1)
+            .maxWait(Duration.ofSeconds(1))
+            .build();
+
+    @Test
+    public void requests_over_the_limit_wait_for_a_permit_test() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test.queue", FIXED);
+        Sinks.One<String> first = Sinks.one();
+        Sinks.One<String> second = Sinks.one();
+        limiter.limit(first.asMono()).subscribe();
+        limiter.limit(second.asMono()).subscribe();
+
+        StepVerifier.create(limiter.limit(Mono.just("third")))
+                .then(() -> {
+                    assertEquals(2, limiter.inFlight());
+                    assertEquals(1, limiter.queued());
+                    first.tryEmitValue("first");
+                })
+                .expectNext("third")
+                .verifyComplete();
+
+        assertEquals(0, limiter.queued());
+        assertEquals(1, limiter.inFlight());
+        second.tryEmitValue("second");
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void full_queue_rejects_right_away_test() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test.reject", FIXED.toBuilder().maxQueue(0).build());
+        limiter.limit(Mono.never()).subscribe();
+        limiter.limit(Mono.never()).subscribe();
+
+        StepVerifier.create(limiter.limit(Mono.just("rejected")))
+                .expectError(LimitExceededError.class)
+                .verify(Duration.ofMillis(100));
+    }
+
+    @Test
+    public void waiting_longer_than_max_wait_rejects_test() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test.max-wait", FIXED.toBuilder().maxWait(Duration.ofMillis(50)).build());
+        limiter.limit(Mono.never()).subscribe();
+        limiter.limit(Mono.never()).subscribe();
+
+        StepVerifier.create(limiter.limit(Mono.just("too late")))
+                .expectError(LimitExceededError.class)
+                .verify(Duration.ofMillis(500));
+        assertEquals(0, limiter.queued());
+    }
+
+    @Test
+    public void cancelled_calls_and_waiters_free_their_permits_test() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test.cancel", FIXED);
+        Disposable first = limiter.limit(Mono.never()).subscribe();
+        Disposable second = limiter.limit(Mono.never()).subscribe();
+        Disposable waiting = limiter.limit(Mono.never()).subscribe();
+
+        waiting.dispose();
+        assertEquals(0, limiter.queued());
+        first.dispose();
+        second.dispose();
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void limit_grows_while_latency_is_steady_test() {
+        ConcurrencyLimitSettings settings = ConcurrencyLimitSettings.defaults().toBuilder()
+                .enabled(true)
+                .initialLimit(4)
+                .minLimit(1)
+                .maxLimit(64)
+                .build();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test.grow", settings);
+
+        Flux.range(0, 400)
+                .flatMap(i -> limiter.limit(Mono.delay(Duration.ofMillis(5))), 64)
+                .blockLast();
+
+        assertTrue(limiter.limit() > 4, "limit: " + limiter.limit());
+    }
+
+    @Test
+    public void limit_shrinks_when_latency_goes_up_test() {
+        ConcurrencyLimitSettings settings = ConcurrencyLimitSettings.defaults().toBuilder()
+                .enabled(true)
+                .initialLimit(32)
+                .minLimit(1)
+                .maxLimit(32)
+                .build();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test.shrink", settings);
+
+        Flux.range(0, 200)
+                .flatMap(i -> limiter.limit(Mono.delay(Duration.ofMillis(5))), 32)
+                .blockLast();
+        // fewer slow samples than the long-term average needs to catch up
+        Flux.range(0, 60)
+                .flatMap(i -> limiter.limit(Mono.delay(Duration.ofMillis(50))), 32)
+                .blockLast();
+
+        assertTrue(limiter.limit() < 32, "limit: " + limiter.limit());
+    }
+
+    @Test
+    public void server_errors_back_off_the_limit_test() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test.backoff", FIXED.toBuilder().maxLimit(10).initialLimit(10).build());
+
+        StepVerifier.create(limiter.limit(Mono.error(new ServerError())))
+                .expectError(ServerError.class)
+                .verify();
+
+        assertEquals(9, limiter.limit());
+    }
+}
@@ -0,0 +1,120 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.config.FallbackSettings;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import com.nonblocking.http.client.reactorclient.impl.ExternalServiceClient;
+import com.nonblocking.http.client.reactorclient.metrics.ExchangeMetrics;
+import com.nonblocking.http.stub.ExternalServiceStub;
+import com.nonblocking.http.stub.StubSettings;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FallbackRaceTest {
+
+    private static final Duration DELAY = Duration.ofMillis(300);
+
+    private final FallbackRace race = new FallbackRace("test", FallbackSettings.builder().delay(DELAY).build());
+
+    @Test
+    public void fast_primary_wins_without_a_fallback_test() {
+        PublisherProbe<String> fallback = PublisherProbe.of(Mono.just("fallback"));
+
+        StepVerifier.withVirtualTime(() -> race.race(Mono.just("primary").delayElement(Duration.ofMillis(100)), fallback.mono(), Mono.just("empty")))
+                .thenAwait(Duration.ofMillis(100))
+                .expectNext("primary")
+                .verifyComplete();
+
+        fallback.assertWasNotSubscribed();
+    }
+
+    @Test
+    public void slow_primary_loses_to_the_fallback_and_is_cancelled_test() {
+        PublisherProbe<String> primary = PublisherProbe.of(Mono.just("primary").delayElement(Duration.ofSeconds(1)));
+
+        StepVerifier.withVirtualTime(() -> race.race(primary.mono(), Mono.just("fallback").delayElement(Duration.ofMillis(100)), Mono.just("empty")))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(400))
+                .expectNext("fallback")
+                .verifyComplete();
+
+        primary.assertWasCancelled();
+    }
+
+    @Test
+    public void empty_primary_goes_to_the_empty_fallback_without_waiting_test() {
+        PublisherProbe<String> fallback = PublisherProbe.of(Mono.just("fallback"));
+
+        StepVerifier.withVirtualTime(() -> race.race(Mono.<String>empty().delaySubscription(Duration.ofMillis(50)), fallback.mono(), Mono.just("empty")))
+                .thenAwait(Duration.ofMillis(50))
+                .expectNext("empty")
+                .verifyComplete();
+
+        fallback.assertWasNotSubscribed();
+    }
+
+    @Test
+    public void failed_primary_starts_the_fallback_right_away_test() {
+        StepVerifier.withVirtualTime(() -> race.race(Mono.<String>error(new ServerError()), Mono.just("fallback"), Mono.just("empty")))
+                .expectNext("fallback")
+                .verifyComplete();
+    }
+
+    @Test
+    public void empty_fallback_waits_for_the_primary_test() {
+        StepVerifier.withVirtualTime(() -> race.race(Mono.just("primary").delayElement(Duration.ofSeconds(1)), Mono.<String>empty(), Mono.just("empty")))
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNext("primary")
+                .verifyComplete();
+    }
+
+    @Test
+    public void primary_error_is_reported_when_nothing_came_up_test() {
+        StepVerifier.withVirtualTime(() -> race.race(Mono.<String>error(new ServerError()), Mono.<String>empty(), Mono.just("empty")))
+                .expectError(ServerError.class)
+                .verify();
+    }
+
+    // the product service takes a second, the timeout fallback 100 ms: the answer comes after delay + 100 ms
+    @Test
+    public void slow_product_lookup_is_answered_by_the_fallback_test() {
+        try (ExternalServiceStub stub = ExternalServiceStub.start(0, StubSettings.defaults())) {
+            ExternalServiceClient client = new ExternalServiceClient(ClientSettings.defaults().toBuilder()
+                    .baseUrl(stub.baseUrl())
+                    .build());
+
+            long start = System.nanoTime();
+            StepVerifier.create(client.getDemo03ProductNameWithFallback(1))
+                    .expectNext("fallback-product-1")
+                    .verifyComplete();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue(millis < 900, "took " + millis + " ms");
+            client.dispose();
+        }
+    }
+
+    // the losing product lookup is not left running: its exchange is cancelled once the fallback answered
+    @Test
+    public void slow_product_lookup_is_cancelled_when_the_fallback_wins_test() {
+        try (ExternalServiceStub stub = ExternalServiceStub.start(0, StubSettings.defaults())) {
+            ExternalServiceClient client = new ExternalServiceClient(ClientSettings.defaults().toBuilder()
+                    .baseUrl(stub.baseUrl())
+                    .build());
+
+            StepVerifier.create(client.getDemo03ProductNameWithFallback(2))
+                    .expectNext("fallback-product-2")
+                    .verifyComplete();
+            ExchangeMetrics.Snapshot primary = client.metrics().forEndpoint("demo03.product").snapshot();
+            assertEquals(1, primary.cancels());
+            assertEquals(0, primary.success());
+            client.dispose();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.HedgeSettings;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HedgerTest {
+
+    private static final HedgeSettings HEDGING = HedgeSettings.defaults().toBuilder()
+            .enabled(true)
+            .delay(Duration.ofMillis(100))
+            .build();
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicBoolean primaryCancelled = new AtomicBoolean();
+
+    @Test
+    public void slow_primary_is_hedged_and_cancelled_test() {
+        Hedger hedger = new Hedger("test", HEDGING, new TokenBudget(0.1, 10, 10));
+
+        StepVerifier.create(hedger.hedge(this::slowThenFast))
+                .expectNext("response-2")
+                .verifyComplete();
+
+        assertEquals(2, calls.get());
+        assertTrue(primaryCancelled.get());
+    }
+
+    @Test
+    public void fast_primary_is_not_hedged_test() {
+        Hedger hedger = new Hedger("test", HEDGING, new TokenBudget(0.1, 10, 10));
+
+        StepVerifier.create(hedger.hedge(() -> respond(Duration.ofMillis(10))))
+                .expectNext("response-1")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void hedges_stop_when_budget_is_exhausted_test() {
+        Hedger hedger = new Hedger("test", HEDGING, new TokenBudget(0.1, 10, 0));
+
+        StepVerifier.create(hedger.hedge(this::slowThenFast))
+                .expectNext("response-1")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void failing_hedge_does_not_fail_the_call_test() {
+        Hedger hedger = new Hedger("test", HEDGING, new TokenBudget(0.1, 10, 10));
+
+        StepVerifier.create(hedger.hedge(() -> calls.incrementAndGet() == 1
+                        ? Mono.just("primary").delayElement(Duration.ofMillis(300))
+                        : Mono.error(new IllegalStateException("hedge failed"))))
+                .expectNext("primary")
+                .verifyComplete();
+    }
+
+    @Test
+    public void disabled_hedging_sends_one_request_test() {
+        Hedger hedger = new Hedger("test", HedgeSettings.defaults(), new TokenBudget(0.1, 10, 10));
+
+        StepVerifier.create(hedger.hedge(this::slowThenFast))
+                .expectNext("response-1")
+                .verifyComplete();
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void delay_tracks_observed_percentile_test() {
+        Hedger hedger = new Hedger("test", HEDGING.toBuilder().minSamples(5).build(), new TokenBudget(0.1, 10, 0));
+
+        for (int i = 0; i < 5; i++) {
+            hedger.hedge(() -> Mono.just("fast").delayElement(Duration.ofMillis(20))).block();
+        }
+
+        assertTrue(hedger.delay().compareTo(Duration.ofMillis(100)) < 0);
+        assertTrue(hedger.delay().compareTo(Duration.ofMillis(20)) >= 0);
+    }
+
+    @Test
+    public void failed_and_cancelled_primaries_are_sampled_too_test() {
+        Hedger hedger = new Hedger("test", HEDGING.toBuilder().minSamples(2).build(), new TokenBudget(0.1, 10, 0));
+
+        StepVerifier.create(hedger.hedge(() -> Mono.delay(Duration.ofMillis(40)).then(Mono.error(new IllegalStateException()))))
+                .expectError(IllegalStateException.class)
+                .verify();
+        StepVerifier.create(hedger.hedge(() -> respond(Duration.ofSeconds(1))))
+                .expectSubscription()
+                .thenAwait(Duration.ofMillis(40))
+                .thenCancel()
+                .verify();
+
+        // without the two samples the delay would still be the configured 100ms
+        assertTrue(hedger.delay().compareTo(Duration.ofMillis(100)) < 0, "delay " + hedger.delay());
+        assertTrue(hedger.delay().compareTo(Duration.ofMillis(40)) >= 0, "delay " + hedger.delay());
+    }
+
+    @Test
+    public void budget_earns_a_fraction_per_call_test() {
+        TokenBudget budget = new TokenBudget(0.25, 1, 0);
+
+        budget.deposit();
+        budget.deposit();
+        budget.deposit();
+        assertFalse(budget.tryWithdraw());
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+        assertEquals(0.0, budget.tokens());
+    }
+
+    private Mono<String> slowThenFast() {
+        return calls.get() == 0
+                ? respond(Duration.ofMillis(500)).doOnCancel(() -> primaryCancelled.set(true))
+                : respond(Duration.ofMillis(10));
+    }
+
+    private Mono<String> respond(Duration latency) {
+        int call = calls.incrementAndGet();
+        return Mono.just("response-" + call).delayElement(latency);
+    }
+}
@@ -0,0 +1,103 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.ClientSettings;
+import com.nonblocking.http.client.reactorclient.config.StreamSettings;
+import com.nonblocking.http.client.reactorclient.impl.ExternalServiceClient;
+import com.nonblocking.http.stub.ExternalServiceStub;
+import com.nonblocking.http.stub.Route;
+import com.nonblocking.http.stub.StubSettings;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.netty.http.client.PrematureCloseException;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReconnectorTest {
+
+    private ExternalServiceStub stub;
+    private ExternalServiceClient client;
+
+    @BeforeAll
+    public static void registry() {
+        Metrics.addRegistry(new SimpleMeterRegistry()); // the global registry is a no-op without one
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.dispose();
+        stub.close();
+    }
+
+    @Test
+    public void stream_continues_across_dropped_connections_test() {
+        start(3, StreamSettings.defaults());
+
+        StepVerifier.create(client.getNameStream().take(10))
+                .expectNextCount(10)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+
+        assertEquals(3, client.reconnector("demo02.name").reconnects());
+        Timer gap = Metrics.globalRegistry.find("external.service.stream.gap").tag("endpoint", "demo02.name").timer();
+        assertNotNull(gap);
+        assertTrue(gap.count() >= 3);
+    }
+
+    @Test
+    public void reconnects_are_capped_within_the_window_test() {
+        start(2, StreamSettings.defaults().toBuilder()
+                .maxReconnects(2)
+                .build());
+
+        StepVerifier.create(client.getNameStream())
+                .expectNextCount(6) // two elements on each of the three connections
+                .expectError(PrematureCloseException.class)
+                .verify(Duration.ofSeconds(10));
+
+        assertEquals(2, client.reconnector("demo02.name").reconnects());
+    }
+
+    @Test
+    public void malformed_stream_is_not_reconnected_test() {
+        start(0, StreamSettings.defaults().toBuilder()
+                .maxFrameLength(2)
+                .build());
+
+        StepVerifier.create(client.getNameStream())
+                .expectError(TooLongFrameException.class)
+                .verify(Duration.ofSeconds(10));
+
+        assertEquals(0, client.reconnector("demo02.name").reconnects());
+    }
+
+    @Test
+    public void completed_stream_is_not_reconnected_test() {
+        start(0, StreamSettings.defaults());
+
+        StepVerifier.create(client.getNameStream())
+                .expectNextCount(5)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+
+        assertEquals(0, client.reconnector("demo02.name").reconnects());
+    }
+
+    private void start(long dropAfter, StreamSettings stream) {
+        stub = ExternalServiceStub.start(0, StubSettings.defaults()
+                .with(Route.DEMO02_NAME_STREAM, route -> route.emitInterval(Duration.ofMillis(10)).emissions(5).dropAfter(dropAfter)));
+        client = new ExternalServiceClient(ClientSettings.defaults().toBuilder()
+                .baseUrl(stub.baseUrl())
+                .stream(stream.toBuilder().reconnectBaseBackoff(Duration.ofMillis(20)).build())
+                .build());
+    }
+}
@@ -0,0 +1,86 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import com.nonblocking.http.client.reactorclient.config.RetrySettings;
+import com.nonblocking.http.client.reactorclient.exception.ClientError;
+import com.nonblocking.http.client.reactorclient.exception.ServerError;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RetryBudgetTest {
+
+    private static final RetrySettings SETTINGS = RetrySettings.defaults().toBuilder()
+            .tokensPerSuccess(0.5)
+            .maxTokens(2)
+            .maxAttempts(3)
+            .baseBackoff(Duration.ofMillis(1))
+            .maxBackoff(Duration.ofMillis(20))
+            .build();
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    public void client_error_is_never_retried_test() {
+        RetryBudget budget = new RetryBudget(SETTINGS);
+
+        StepVerifier.create(failing(new ClientError()).retryWhen(budget.retry()))
+                .expectError(ClientError.class)
+                .verify();
+
+        assertEquals(1, attempts.get());
+        assertEquals(0, budget.granted());
+    }
+
+    @Test
+    public void server_error_is_retried_until_it_succeeds_test() {
+        RetryBudget budget = new RetryBudget(SETTINGS);
+
+        StepVerifier.create(Mono.defer(() -> attempts.incrementAndGet() < 3 ? Mono.error(new ServerError()) : Mono.just("product-2"))
+                        .retryWhen(budget.retry()))
+                .expectNext("product-2")
+                .verifyComplete();
+
+        assertEquals(2, budget.granted());
+    }
+
+    @Test
+    public void retries_stop_when_budget_is_exhausted_test() {
+        RetryBudget budget = new RetryBudget(SETTINGS);
+
+        StepVerifier.create(failing(new ServerError()).retryWhen(budget.retry()))
+                .expectError(ServerError.class)
+                .verify();
+
+        // two tokens to start with, so the third retry is denied
+        assertEquals(3, attempts.get());
+        assertEquals(2, budget.granted());
+        assertEquals(1, budget.denied());
+    }
+
+    @Test
+    public void successful_calls_refill_the_budget_test() {
+        RetryBudget budget = new RetryBudget(SETTINGS);
+        failing(new ServerError()).retryWhen(budget.retry()).onErrorResume(ex -> Mono.empty()).block();
+        attempts.set(0);
+
+        budget.onSuccess();
+        budget.onSuccess();
+
+        StepVerifier.create(failing(new ServerError()).retryWhen(budget.retry()))
+                .expectError(ServerError.class)
+                .verify();
+        assertEquals(2, attempts.get());
+    }
+
+    private Mono<String> failing(RuntimeException error) {
+        return Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(error);
+        });
+    }
+}
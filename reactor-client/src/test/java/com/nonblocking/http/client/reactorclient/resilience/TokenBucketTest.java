@@ -0,0 +1,70 @@
+package com.nonblocking.http.client.reactorclient.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenBucketTest {
+
+    @Test
+    public void full_bucket_allows_a_burst_of_capacity_test() {
+        TokenBucket bucket = new TokenBucket(3, Duration.ofSeconds(5));
+
+        assertEquals(3, bucket.availableTokens());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(0, bucket.availableTokens());
+        assertTrue(bucket.nanosUntilNextToken() > 0);
+    }
+
+    @Test
+    public void tokens_come_back_one_interval_at_a_time_test() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofMillis(200)); // a token every 100ms
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        TimeUnit.NANOSECONDS.sleep(bucket.nanosUntilNextToken());
+
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void concurrent_callers_never_exceed_capacity_test() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, Duration.ofHours(1));
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int thread = 0; thread < 16; thread++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, acquired.get());
+    }
+}